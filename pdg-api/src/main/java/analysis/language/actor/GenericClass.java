@@ -52,7 +52,7 @@ public class GenericClass extends GenericDefinition {
      * 
      * @param in the instance variable to add
      */
-    public void addInstanceVariable(InstanceVariable in) {
+    public synchronized void addInstanceVariable(InstanceVariable in) {
         instanceVariables.add(in);
     }
 
@@ -78,7 +78,7 @@ public class GenericClass extends GenericDefinition {
      * @param gd {@inheritDoc}
      */
     @Override
-    public void addAssociation(GenericDefinition gd) {
+    public synchronized void addAssociation(GenericDefinition gd) {
         if (inheritance == null || !gd.equals(inheritance)) { // TODO: While I don't allow multiple associations
             super.addAssociation(gd);
         }
@@ -98,7 +98,7 @@ public class GenericClass extends GenericDefinition {
      * 
      * @param ref the parent of this class
      */
-    public void setInheritance(GenericDefinition ref) {
+    public synchronized void setInheritance(GenericDefinition ref) {
         inheritance = ref;
     }
 
@@ -206,7 +206,7 @@ public class GenericClass extends GenericDefinition {
      * 
      * @return the parent
      */
-    public GenericDefinition getInheritance() {
+    public synchronized GenericDefinition getInheritance() {
         return inheritance;
     }
 
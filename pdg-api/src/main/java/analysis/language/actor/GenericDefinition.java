@@ -7,7 +7,10 @@
 package analysis.language.actor;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import analysis.language.Visibility;
 import analysis.language.component.Argument;
@@ -16,6 +19,9 @@ import analysis.language.component.Function;
 
 /**
  * A generic definition of a class / interface.
+ * <p>
+ * Relationships and functions may be added from several threads at once;
+ * each definition guards its own state with its intrinsic lock.
  * 
  * @author Ada Clevinger
  * @author Sung Ho Yoon
@@ -30,10 +36,18 @@ public abstract class GenericDefinition implements Comparable<GenericDefinition>
     private String name;
     /** The context that this entity is in */
     private String context;
-    /** The associates of this entity. */
+    /** The full name of this entity. */
+    private String fullName;
+    /** The dense integer ID assigned on registration, or {@code -1}. */
+    private int id;
+    /** The associates of this entity, in insertion order. */
     private List<GenericDefinition> associates;
-    /** The realization relationships that this entity has. */
+    /** Membership index for {@link #associates}. */
+    private Set<GenericDefinition> associateSet;
+    /** The realization relationships that this entity has, in insertion order. */
     private List<GenericDefinition> realizations; // dotted line, empty arrowhead
+    /** Membership index for {@link #realizations}. */
+    private Set<GenericDefinition> realizationSet;
     /** Functions defined in this entity. */
     private List<Function> functions;
 
@@ -48,23 +62,30 @@ public abstract class GenericDefinition implements Comparable<GenericDefinition>
     public GenericDefinition(String name, String context) {
         this.name = name;
         this.context = context;
+        fullName = context + "/" + name;
+        id = -1;
         associates = new ArrayList<GenericDefinition>();
+        associateSet = new HashSet<GenericDefinition>();
         functions = new ArrayList<Function>();
         realizations = new ArrayList<GenericDefinition>();
+        realizationSet = new HashSet<GenericDefinition>();
     }
 
     // Operations
 
     /**
-     * Adds an associate to this {@code GenericDefinition}.
+     * Adds an associate to this {@code GenericDefinition}. Adding an associate
+     * that is already present has no effect.
      * 
      * @param ref an associate
      */
-    public void addAssociation(GenericDefinition ref) {
+    public synchronized void addAssociation(GenericDefinition ref) {
         if (ref == null) {
             return;
         }
-        associates.add(ref);
+        if (associateSet.add(ref)) {
+            associates.add(ref);
+        }
     }
 
     /**
@@ -72,7 +93,7 @@ public abstract class GenericDefinition implements Comparable<GenericDefinition>
      * 
      * @param in a function
      */
-    public void addFunction(Function in) {
+    public synchronized void addFunction(Function in) {
         functions.add(in);
     }
 
@@ -120,12 +141,15 @@ public abstract class GenericDefinition implements Comparable<GenericDefinition>
     }
 
     /**
-     * Adds a realization relationship to this {@code GenericDefinition}.
+     * Adds a realization relationship to this {@code GenericDefinition}. Adding a
+     * realization relationship that is already present has no effect.
      * 
      * @param in a realization relationship
      */
-    public void addRealization(GenericDefinition in) {
-        realizations.add(in);
+    public synchronized void addRealization(GenericDefinition in) {
+        if (realizationSet.add(in)) {
+            realizations.add(in);
+        }
     }
 
     /**
@@ -296,21 +320,23 @@ public abstract class GenericDefinition implements Comparable<GenericDefinition>
     }
 
     /**
-     * Returns the associates of this {@code GenericDefinition}.
+     * Returns the associates of this {@code GenericDefinition}, in the order they
+     * were added. The returned list is an unmodifiable view.
      * 
      * @return the associates of this {@code GenericDefinition}
      */
     public List<GenericDefinition> getClassAssociates() {
-        return associates;
+        return Collections.unmodifiableList(associates);
     }
 
     /**
-     * Returns the realization relationships of this {@code GenericDefinition}.
+     * Returns the realization relationships of this {@code GenericDefinition}, in
+     * the order they were added. The returned list is an unmodifiable view.
      * 
      * @return the realization relationships of this {@code GenericDefinition}
      */
     public List<GenericDefinition> getRealizations() {
-        return realizations;
+        return Collections.unmodifiableList(realizations);
     }
 
     /**
@@ -337,7 +363,34 @@ public abstract class GenericDefinition implements Comparable<GenericDefinition>
      * @return the full name of this {@code GenericDefinition}
      */
     public String getFullName() {
-        return getContext() + "/" + getName();
+        return fullName;
+    }
+
+    /**
+     * Returns the ID of this {@code GenericDefinition}. IDs are assigned densely,
+     * starting from zero, when a definition is registered with a project.
+     * 
+     * @return the ID, or {@code -1} if this definition has not been registered
+     * 
+     * @since 2.1.0
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Assigns the ID of this {@code GenericDefinition}.
+     * 
+     * @param id a non-negative ID
+     * @throws IllegalArgumentException if argument is negative
+     * 
+     * @since 2.1.0
+     */
+    public void setId(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid ID: " + id);
+        }
+        this.id = id;
     }
 
     /**
@@ -348,13 +401,22 @@ public abstract class GenericDefinition implements Comparable<GenericDefinition>
      * @return {@code true} if this {@code GenericDefinition} has an association
      *         relationship with the specified {@code GenericDefinition}
      */
-    public boolean hasAssociate(GenericDefinition gc) {
-        for (GenericDefinition c : associates) {
-            if (c.compareTo(gc) == 0) {
-                return true;
-            }
-        }
-        return false;
+    public synchronized boolean hasAssociate(GenericDefinition gc) {
+        return associateSet.contains(gc);
+    }
+
+    /**
+     * Checks whether this {@code GenericDefinition} has a realization
+     * relationship with another {@code GenericDefinition}.
+     * 
+     * @param gd a {@code GenericDefinition}
+     * @return {@code true} if this {@code GenericDefinition} has a realization
+     *         relationship with the specified {@code GenericDefinition}
+     * 
+     * @since 2.1.0
+     */
+    public synchronized boolean hasRealization(GenericDefinition gd) {
+        return realizationSet.contains(gd);
     }
 
     // Mechanics
@@ -374,7 +436,7 @@ public abstract class GenericDefinition implements Comparable<GenericDefinition>
      */
     @Override
     public int compareTo(GenericDefinition o) {
-        return getFullName().compareTo(o.getFullName());
+        return fullName.compareTo(o.fullName);
     }
 
     /**
@@ -388,7 +450,7 @@ public abstract class GenericDefinition implements Comparable<GenericDefinition>
         if (this == obj)
             return true;
         else if (obj instanceof GenericDefinition) {
-            return getFullName().equals(((GenericDefinition) obj).getFullName());
+            return fullName.equals(((GenericDefinition) obj).fullName);
         } else
             return false;
     }
@@ -402,7 +464,7 @@ public abstract class GenericDefinition implements Comparable<GenericDefinition>
      */
     @Override
     public int hashCode() {
-        return getFullName().hashCode();
+        return fullName.hashCode();
     }
 
 }
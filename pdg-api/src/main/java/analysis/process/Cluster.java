@@ -8,8 +8,10 @@ package analysis.process;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.ArrayUtils;
@@ -24,64 +26,122 @@ public class Cluster {
     // Instance Variables
 
     private String[] address;
+    private String addressName;
     private List<Cluster> children;
+    private Map<String, Cluster> childIndex;
+    private Map<String, Cluster> packageIndex;
     private Set<String> composite;
+    private int[] componentIds;
 
     // Constructors
 
     public Cluster(String[] givenAddress) {
+        this(givenAddress, new HashMap<String, Cluster>());
+    }
+
+    private Cluster(String[] givenAddress, Map<String, Cluster> packageIndex) {
         address = givenAddress;
+        addressName = formAddress(givenAddress);
+        this.packageIndex = packageIndex;
         children = new ArrayList<Cluster>();
+        childIndex = new HashMap<String, Cluster>();
         composite = new HashSet<String>();
+        componentIds = ArrayUtils.EMPTY_INT_ARRAY;
     }
 
     // Operations
 
     public void addComponent(String[] path, String in) {
-        if (path == null || path.length == 0) {
+        if (path == null) {
             composite.add(in);
         } else {
-            Cluster use = findChild(path[0]);
-            if (use == null) {
-                addCluster(path);
-                use = findChild(path[0]);
-            }
-            use.addComponent(tearArray(path), in);
+            walk(path, 0, true).composite.add(in);
+        }
+    }
+
+    /**
+     * Adds a component to the cluster of the specified package, creating any
+     * missing clusters along the way.
+     * 
+     * @param packageName the fully qualified name of a package
+     * @param in          the full name of the component
+     * 
+     * @since 2.1.0
+     */
+    public void addComponent(String packageName, String in) {
+        Cluster use = packageIndex.get(packageName);
+        if (use == null) {
+            use = walk(packageName.split("\\."), 0, true);
         }
+        use.composite.add(in);
     }
 
     public void addCluster(String[] path) {
-        if (path == null || path.length == 0) {
+        if (path == null) {
             return;
         }
-        Cluster next = findChild(path[0]);
-        if (next == null) {
-            next = new Cluster(mergePath(path[0]));
-            children.add(next);
+        walk(path, 0, true);
+    }
+
+    /**
+     * Follows {@code path} from index {@code from} onwards.
+     * 
+     * @param path   the path to follow
+     * @param from   the index of the first step to take
+     * @param create whether to create missing clusters
+     * @return the cluster at the end of the path, or {@code null} if it does not
+     *         exist and {@code create} is {@code false}
+     */
+    private Cluster walk(String[] path, int from, boolean create) {
+        Cluster curr = this;
+        for (int i = from; i < path.length && curr != null; i++) {
+            Cluster next = curr.findChild(path[i]);
+            if (next == null && create) {
+                next = curr.createChild(path[i]);
+            }
+            curr = next;
         }
-        next.addCluster(tearArray(path));
+        return curr;
     }
 
     private Cluster findChild(String step) {
-        for (Cluster c : children) {
-            if (step.equals(c.getTernary())) {
-                return c;
-            }
-        }
-        return null;
+        return childIndex.get(step);
+    }
+
+    private Cluster createChild(String step) {
+        Cluster next = new Cluster(mergePath(step), packageIndex);
+        childIndex.put(step, next);
+        children.add(next);
+        packageIndex.put(next.getAddress(), next);
+        return next;
+    }
+
+    void setComponentIds(int[] ids) {
+        componentIds = ids;
     }
 
     // Getter Methods
 
     public Cluster getCluster(String[] path) {
-        if (path == null || path.length == 0) {
+        if (path == null) {
             return this;
         }
-        Cluster next = findChild(path[0]);
-        if (next == null) {
-            return null;
-        }
-        return next.getCluster(tearArray(path));
+        return walk(path, 0, false);
+    }
+
+    /**
+     * Returns the cluster of the package with the specified fully qualified
+     * name. The lookup is made against the whole tree that this cluster belongs
+     * to, not relative to this cluster.
+     * 
+     * @param packageName the fully qualified name of a package
+     * @return the cluster of the specified package, or {@code null} if no such
+     *         cluster exists
+     * 
+     * @since 2.1.0
+     */
+    public Cluster getCluster(String packageName) {
+        return packageIndex.get(packageName);
     }
 
     public List<Cluster> getChildren() {
@@ -92,28 +152,36 @@ public class Cluster {
         return composite;
     }
 
+    /**
+     * Returns the IDs of the components of this cluster, in ascending order. IDs
+     * are assigned once {@link Explore} has discovered all definitions; until
+     * then, this array is empty.
+     * 
+     * @return the IDs of the components of this cluster
+     * 
+     * @since 2.1.0
+     */
+    public int[] getComponentIds() {
+        return componentIds.clone();
+    }
+
     public String[] getAddressArray() {
         return address;
     }
 
     public String getAddress() {
+        return addressName;
+    }
+
+    // Mechanics
+
+    private static String formAddress(String[] address) {
         if (address == null || address.length == 0) {
             return StringUtils.EMPTY;
         }
-        StringBuilder outBuilder = new StringBuilder(address[0]);
-        for (int i = 1; i < address.length; i++) {
-            outBuilder.append('.');
-            outBuilder.append(address[i]);
-        }
-        return outBuilder.toString();
+        return String.join(".", address);
     }
 
-    private String getTernary() {
-        return address[address.length - 1];
-    }
-
-    // Mechanics
-
     private String[] mergePath(String tack) {
         String[] out = new String[address.length + 1];
         System.arraycopy(address, 0, out, 0, address.length);
@@ -121,13 +189,6 @@ public class Cluster {
         return out;
     }
 
-    private String[] tearArray(String[] in) {
-        if (in.length <= 1) {
-            return ArrayUtils.EMPTY_STRING_ARRAY;
-        }
-        return Arrays.copyOfRange(in, 1, in.length);
-    }
-
     public void debugPrintOut() {
         debugPrintOut(0);
     }
@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package analysis.process;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+import analysis.language.actor.GenericClass;
+import analysis.language.actor.GenericDefinition;
+
+/**
+ * An immutable snapshot of the relationships between the definitions of a
+ * project.
+ * <p>
+ * Edges are stored in compressed sparse row form, once grouped by source
+ * (outgoing) and once grouped by target (incoming). Nodes are addressed by
+ * index; for a graph built with {@link #of(Explore)}, the index of a node is
+ * the {@link GenericDefinition#getId() ID} of its definition. Subgraphs
+ * renumber their nodes densely, preserving relative order.
+ *
+ * @since 2.1.0
+ */
+public final class DefinitionGraph {
+
+    /**
+     * Enumerates the kinds of relationships stored in a
+     * {@code DefinitionGraph}.
+     *
+     * @since 2.1.0
+     */
+    public enum EdgeType {
+        /** A class extending another class. */
+        INHERITANCE,
+        /** A definition implementing (or an interface extending) an interface. */
+        REALIZATION,
+        /** A definition referring to another definition. */
+        ASSOCIATION;
+
+        /** Cached result of {@link #values()}. */
+        private static final EdgeType[] VALUES = values();
+
+        /**
+         * Returns a bit mask that selects the specified edge types.
+         *
+         * @param types edge types; if empty, all types are selected
+         * @return the corresponding bit mask
+         */
+        private static int mask(EdgeType... types) {
+            if (types.length == 0) {
+                return (1 << VALUES.length) - 1;
+            }
+            int mask = 0;
+            for (EdgeType type : types) {
+                mask |= 1 << type.ordinal();
+            }
+            return mask;
+        }
+    }
+
+    // Instance Variables
+
+    /** The definitions, indexed by node. */
+    private final GenericDefinition[] nodes;
+    /** Start of each node's outgoing edges; has one extra trailing entry. */
+    private final int[] outOffsets;
+    /** Targets of the outgoing edges. */
+    private final int[] outTargets;
+    /** Types of the outgoing edges, as ordinals. */
+    private final byte[] outTypes;
+    /** Start of each node's incoming edges; has one extra trailing entry. */
+    private final int[] inOffsets;
+    /** Sources of the incoming edges. */
+    private final int[] inSources;
+    /** Types of the incoming edges, as ordinals. */
+    private final byte[] inTypes;
+
+    // Constructors
+
+    /**
+     * Constructs a new {@code DefinitionGraph} from the outgoing edges; the
+     * incoming edges are derived from them.
+     */
+    private DefinitionGraph(GenericDefinition[] nodes, int[] outOffsets, int[] outTargets, byte[] outTypes) {
+        this.nodes = nodes;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.outTypes = outTypes;
+
+        int n = nodes.length;
+        inOffsets = new int[n + 1];
+        inSources = new int[outTargets.length];
+        inTypes = new byte[outTargets.length];
+        for (int target : outTargets) {
+            inOffsets[target + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            inOffsets[i + 1] += inOffsets[i];
+        }
+        int[] fill = Arrays.copyOf(inOffsets, n);
+        for (int source = 0; source < n; source++) {
+            for (int e = outOffsets[source]; e < outOffsets[source + 1]; e++) {
+                int slot = fill[outTargets[e]]++;
+                inSources[slot] = source;
+                inTypes[slot] = outTypes[e];
+            }
+        }
+    }
+
+    /**
+     * Builds a snapshot of the relationships in a processed project.
+     *
+     * @param explore a project on which {@link Explore#run()} has completed
+     * @return a snapshot of the relationships in the project
+     * @throws NullPointerException if argument is {@code null}
+     */
+    public static DefinitionGraph of(Explore explore) {
+        List<GenericDefinition> defs = Objects.requireNonNull(explore).getDefinitions();
+        int n = defs.size();
+        GenericDefinition[] nodes = defs.toArray(new GenericDefinition[n]);
+
+        int[] outOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            GenericDefinition gd = nodes[i];
+            int count = gd.getRealizations().size() + gd.getClassAssociates().size();
+            if (gd instanceof GenericClass && ((GenericClass) gd).getInheritance() != null) {
+                count++;
+            }
+            outOffsets[i + 1] = outOffsets[i] + count;
+        }
+
+        int[] outTargets = new int[outOffsets[n]];
+        byte[] outTypes = new byte[outOffsets[n]];
+        int e = 0;
+        for (int i = 0; i < n; i++) {
+            GenericDefinition gd = nodes[i];
+            if (gd instanceof GenericClass) {
+                e = addEdge(outTargets, outTypes, e, ((GenericClass) gd).getInheritance(), EdgeType.INHERITANCE, n);
+            }
+            for (GenericDefinition other : gd.getRealizations()) {
+                e = addEdge(outTargets, outTypes, e, other, EdgeType.REALIZATION, n);
+            }
+            for (GenericDefinition other : gd.getClassAssociates()) {
+                e = addEdge(outTargets, outTypes, e, other, EdgeType.ASSOCIATION, n);
+            }
+            // Compact away edges to definitions outside the project
+            outOffsets[i + 1] = e;
+        }
+        if (e < outTargets.length) {
+            outTargets = Arrays.copyOf(outTargets, e);
+            outTypes = Arrays.copyOf(outTypes, e);
+        }
+        return new DefinitionGraph(nodes, outOffsets, outTargets, outTypes);
+    }
+
+    private static int addEdge(int[] targets, byte[] types, int e, GenericDefinition target, EdgeType type, int n) {
+        if (target == null || target.getId() < 0 || target.getId() >= n) {
+            return e;
+        }
+        targets[e] = target.getId();
+        types[e] = (byte) type.ordinal();
+        return e + 1;
+    }
+
+    // Getter Methods
+
+    /**
+     * Returns the number of nodes in this graph.
+     *
+     * @return the number of nodes
+     */
+    public int getNumberNodes() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns the number of edges in this graph.
+     *
+     * @return the number of edges
+     */
+    public int getNumberEdges() {
+        return outTargets.length;
+    }
+
+    /**
+     * Returns the definition represented by the specified node.
+     *
+     * @param node a node index
+     * @return the definition represented by the node
+     * @throws IndexOutOfBoundsException if argument is out of bounds
+     */
+    public GenericDefinition getNode(int node) {
+        return nodes[node];
+    }
+
+    /**
+     * Returns the number of edges leaving the specified node.
+     *
+     * @param node a node index
+     * @return the fan-out of the node
+     * @throws IndexOutOfBoundsException if argument is out of bounds
+     */
+    public int getFanOut(int node) {
+        return outOffsets[node + 1] - outOffsets[node];
+    }
+
+    /**
+     * Returns the number of edges entering the specified node.
+     *
+     * @param node a node index
+     * @return the fan-in of the node
+     * @throws IndexOutOfBoundsException if argument is out of bounds
+     */
+    public int getFanIn(int node) {
+        return inOffsets[node + 1] - inOffsets[node];
+    }
+
+    /**
+     * Returns the target of an edge leaving the specified node.
+     *
+     * @param node  a node index
+     * @param index the index of the edge, from zero to the fan-out (exclusive)
+     * @return the target node of the edge
+     * @throws IndexOutOfBoundsException if an argument is out of bounds
+     */
+    public int getSuccessorAt(int node, int index) {
+        return outTargets[outEdge(node, index)];
+    }
+
+    /**
+     * Returns the type of an edge leaving the specified node.
+     *
+     * @param node  a node index
+     * @param index the index of the edge, from zero to the fan-out (exclusive)
+     * @return the type of the edge
+     * @throws IndexOutOfBoundsException if an argument is out of bounds
+     */
+    public EdgeType getSuccessorTypeAt(int node, int index) {
+        return EdgeType.VALUES[outTypes[outEdge(node, index)]];
+    }
+
+    /**
+     * Returns the source of an edge entering the specified node.
+     *
+     * @param node  a node index
+     * @param index the index of the edge, from zero to the fan-in (exclusive)
+     * @return the source node of the edge
+     * @throws IndexOutOfBoundsException if an argument is out of bounds
+     */
+    public int getPredecessorAt(int node, int index) {
+        return inSources[inEdge(node, index)];
+    }
+
+    /**
+     * Returns the type of an edge entering the specified node.
+     *
+     * @param node  a node index
+     * @param index the index of the edge, from zero to the fan-in (exclusive)
+     * @return the type of the edge
+     * @throws IndexOutOfBoundsException if an argument is out of bounds
+     */
+    public EdgeType getPredecessorTypeAt(int node, int index) {
+        return EdgeType.VALUES[inTypes[inEdge(node, index)]];
+    }
+
+    private int outEdge(int node, int index) {
+        Objects.checkIndex(index, getFanOut(node));
+        return outOffsets[node] + index;
+    }
+
+    private int inEdge(int node, int index) {
+        Objects.checkIndex(index, getFanIn(node));
+        return inOffsets[node] + index;
+    }
+
+    // Operations
+
+    /**
+     * Finds every node reachable from the specified node along edges of the
+     * specified types, including the node itself.
+     *
+     * @param node    the starting node
+     * @param reverse if {@code true}, edges are followed backwards, i.e. this
+     *                finds every node from which {@code node} is reachable
+     * @param types   the types of edges to follow; if none are given, all edges
+     *                are followed
+     * @return the set of reachable nodes
+     * @throws IndexOutOfBoundsException if {@code node} is out of bounds
+     */
+    public BitSet reachableFrom(int node, boolean reverse, EdgeType... types) {
+        Objects.checkIndex(node, nodes.length);
+        int mask = EdgeType.mask(types);
+        int[] offsets = reverse ? inOffsets : outOffsets;
+        int[] adjacent = reverse ? inSources : outTargets;
+        byte[] edgeTypes = reverse ? inTypes : outTypes;
+
+        BitSet visited = new BitSet(nodes.length);
+        int[] queue = new int[nodes.length];
+        int head = 0;
+        int tail = 0;
+        visited.set(node);
+        queue[tail++] = node;
+        while (head < tail) {
+            int curr = queue[head++];
+            for (int e = offsets[curr]; e < offsets[curr + 1]; e++) {
+                int next = adjacent[e];
+                if ((mask & (1 << edgeTypes[e])) != 0 && !visited.get(next)) {
+                    visited.set(next);
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Extracts the subgraph induced by the specified nodes. The nodes of the
+     * subgraph are renumbered densely in their original order.
+     *
+     * @param keep the nodes to keep
+     * @return the induced subgraph
+     * @throws NullPointerException if argument is {@code null}
+     */
+    public DefinitionGraph subgraph(BitSet keep) {
+        int[] remap = new int[nodes.length];
+        Arrays.fill(remap, -1);
+        int n = 0;
+        for (int i = keep.nextSetBit(0); i >= 0 && i < nodes.length; i = keep.nextSetBit(i + 1)) {
+            remap[i] = n++;
+        }
+
+        GenericDefinition[] subNodes = new GenericDefinition[n];
+        int[] subOffsets = new int[n + 1];
+        int edges = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            if (remap[i] < 0) {
+                continue;
+            }
+            subNodes[remap[i]] = nodes[i];
+            for (int e = outOffsets[i]; e < outOffsets[i + 1]; e++) {
+                if (remap[outTargets[e]] >= 0) {
+                    edges++;
+                }
+            }
+            subOffsets[remap[i] + 1] = edges;
+        }
+
+        int[] subTargets = new int[edges];
+        byte[] subTypes = new byte[edges];
+        int e = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            if (remap[i] < 0) {
+                continue;
+            }
+            for (int f = outOffsets[i]; f < outOffsets[i + 1]; f++) {
+                int target = remap[outTargets[f]];
+                if (target >= 0) {
+                    subTargets[e] = target;
+                    subTypes[e] = outTypes[f];
+                    e++;
+                }
+            }
+        }
+        return new DefinitionGraph(subNodes, subOffsets, subTargets, subTypes);
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package analysis.process;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+import analysis.language.actor.GenericDefinition;
+
+/**
+ * An index for resolving type names against a fixed set of definitions. The
+ * definitions are numbered in order of their full names, so that each simple
+ * name maps to a sorted array of numbers and the definitions of a package take
+ * up a contiguous range of them.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @since 2.1.0
+ * @see Explore#getDefinitionIndex()
+ */
+public final class DefinitionIndex {
+
+    private final GenericDefinition[] definitions;
+    private final String[] fullNames;
+    private final Map<String, GenericDefinition> byFullName;
+    private final Map<String, int[]> byName;
+
+    // Constructors
+
+    /**
+     * Constructs a new {@code DefinitionIndex}. If the definitions have been
+     * numbered by {@link Explore}, the numbers used by this index are their IDs.
+     *
+     * @param definitions the definitions to index
+     * @throws NullPointerException if argument is or contains {@code null}
+     */
+    public DefinitionIndex(Collection<? extends GenericDefinition> definitions) {
+        this.definitions = definitions.toArray(new GenericDefinition[0]);
+        Arrays.sort(this.definitions);
+        fullNames = new String[this.definitions.length];
+        byFullName = new HashMap<>();
+        Map<String, List<Integer>> names = new HashMap<>();
+        for (int i = 0; i < this.definitions.length; i++) {
+            GenericDefinition gd = this.definitions[i];
+            fullNames[i] = gd.getFullName();
+            byFullName.put(fullNames[i], gd);
+            names.computeIfAbsent(gd.getName(), k -> new ArrayList<>()).add(i);
+        }
+        byName = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : names.entrySet()) {
+            byName.put(entry.getKey(), ArrayUtils.toPrimitive(entry.getValue().toArray(new Integer[0])));
+        }
+    }
+
+    // Getter Methods
+
+    /**
+     * Returns the definition with the specified number.
+     *
+     * @param id a number
+     * @return the definition with the specified number
+     * @throws ArrayIndexOutOfBoundsException if argument is out of bounds
+     */
+    public GenericDefinition get(int id) {
+        return definitions[id];
+    }
+
+    /**
+     * Returns the definition with the specified full name.
+     *
+     * @param fullName the full name of a definition
+     * @return the definition with the specified full name, or {@code null} if
+     *         there is none
+     */
+    public GenericDefinition get(String fullName) {
+        return byFullName.get(fullName);
+    }
+
+    /**
+     * Returns the numbers of the definitions with the specified simple name.
+     *
+     * @param name a simple name
+     * @return the numbers of the matching definitions, in ascending order
+     */
+    public int[] getIds(String name) {
+        int[] ids = byName.get(name);
+        return ids == null ? ArrayUtils.EMPTY_INT_ARRAY : ids.clone();
+    }
+
+    /**
+     * Returns the range of numbers taken up by the definitions of a package. Only
+     * the definitions directly in the package are included, not those of its
+     * subpackages.
+     *
+     * @param packageName the fully qualified name of a package
+     * @return the first number (inclusive) and the last number (exclusive) of the
+     *         range, in that order
+     */
+    public int[] getPackageRange(String packageName) {
+        // Full names within the package start with "<package>/"; since '0'
+        // directly follows '/', the range ends at the first name at or past
+        // "<package>0"
+        return new int[] { lowerBound(packageName + '/'), lowerBound(packageName + '0') };
+    }
+
+    /**
+     * Returns the number of indexed definitions.
+     *
+     * @return the number of definitions
+     */
+    public int size() {
+        return definitions.length;
+    }
+
+    // Mechanics
+
+    private int lowerBound(String key) {
+        int pos = Arrays.binarySearch(fullNames, key);
+        return pos < 0 ? -pos - 1 : pos;
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package analysis.process;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of directory listings, so that a project tree that is browsed and
+ * then explored is only listed once. A listing is reused as long as the
+ * modification time of its directory is unchanged, which is updated whenever
+ * an entry is added, removed or renamed.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @since 2.1.0
+ * @see Explore#setDirectoryCache(DirectoryCache)
+ */
+public final class DirectoryCache {
+
+    /**
+     * Names of directories that hold build output or dependencies rather than
+     * sources, and are therefore neither browsed nor explored.
+     */
+    private static final Set<String> SKIPPED_NAMES = Set.of("build", "target", "out", "node_modules");
+
+    private final Map<File, Listing> listings = new ConcurrentHashMap<>();
+
+    /**
+     * Lists the entries of a directory.
+     *
+     * @param dir a directory
+     * @return the entries, sorted by path, or {@code null} if {@code dir}
+     *         cannot be listed
+     */
+    public File[] list(File dir) {
+        Listing listing = listing(dir);
+        return listing == null ? null : listing.entries.clone();
+    }
+
+    /**
+     * Lists the subdirectories of a directory.
+     *
+     * @param dir a directory
+     * @return the subdirectories, sorted by path, or {@code null} if
+     *         {@code dir} cannot be listed
+     */
+    public File[] listDirectories(File dir) {
+        Listing listing = listing(dir);
+        if (listing == null) {
+            return null;
+        }
+        List<File> directories = new ArrayList<>();
+        for (int i = 0; i < listing.entries.length; i++) {
+            if (listing.directories[i]) {
+                directories.add(listing.entries[i]);
+            }
+        }
+        return directories.toArray(new File[0]);
+    }
+
+    /**
+     * Determines whether a directory is left out of the package tree and of the
+     * analysis. This is the case for hidden directories and for those that
+     * conventionally hold build output or dependencies, namely {@code build},
+     * {@code target}, {@code out} and {@code node_modules}.
+     *
+     * @param dir a directory
+     * @return {@code true} if {@code dir} is to be skipped
+     */
+    public static boolean isSkipped(File dir) {
+        return dir.isHidden() || SKIPPED_NAMES.contains(dir.getName());
+    }
+
+    /**
+     * Discards all cached listings.
+     */
+    public void clear() {
+        listings.clear();
+    }
+
+    private Listing listing(File dir) {
+        File key = dir.getAbsoluteFile();
+        long modified = key.lastModified();
+        Listing listing = listings.get(key);
+        if (listing != null && listing.modified == modified) {
+            return listing;
+        }
+        File[] entries = key.listFiles();
+        if (entries == null) {
+            listings.remove(key);
+            return null;
+        }
+        Arrays.sort(entries);
+        boolean[] directories = new boolean[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            directories[i] = entries[i].isDirectory();
+        }
+        listing = new Listing(modified, entries, directories);
+        listings.put(key, listing);
+        return listing;
+    }
+
+    /** The entries of a directory at the time it was listed. */
+    private static class Listing {
+
+        private final long modified;
+        private final File[] entries;
+        private final boolean[] directories;
+
+        Listing(long modified, File[] entries, boolean[] directories) {
+            this.modified = modified;
+            this.entries = entries;
+            this.directories = directories;
+        }
+    }
+}
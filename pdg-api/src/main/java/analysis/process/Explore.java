@@ -10,12 +10,18 @@ import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.logging.log4j.LogManager;
@@ -38,10 +44,15 @@ public class Explore implements Runnable {
     private Map<String, GenericClass> classes;
     private Map<String, GenericInterface> interfaces;
     private Map<String, GenericEnum> enums;
+    private List<GenericDefinition> definitions;
+    private Map<String, GenericDefinition> definitionsByName;
+    private DefinitionIndex index;
     private Cluster parent;
     private String rootPath;
 
     private Set<String> ignore;
+    private Executor executor;
+    private DirectoryCache directoryCache;
 
     // Constructors
 
@@ -49,10 +60,15 @@ public class Explore implements Runnable {
         rootPath = root.getAbsolutePath();
         ignore = new HashSet<String>();
         files = new ArrayList<GenericFile>();
-        classes = new HashMap<String, GenericClass>();
-        interfaces = new HashMap<String, GenericInterface>();
-        enums = new HashMap<String, GenericEnum>();
+        classes = new TreeMap<String, GenericClass>();
+        interfaces = new TreeMap<String, GenericInterface>();
+        enums = new TreeMap<String, GenericEnum>();
+        definitions = new ArrayList<GenericDefinition>();
+        definitionsByName = new HashMap<String, GenericDefinition>();
+        index = new DefinitionIndex(definitions);
         parent = new Cluster(ArrayUtils.EMPTY_STRING_ARRAY);
+        executor = Runnable::run;
+        directoryCache = new DirectoryCache();
         if (rootPath.charAt(rootPath.length() - 1) != File.separatorChar) {
             rootPath += File.separatorChar;
         }
@@ -70,21 +86,47 @@ public class Explore implements Runnable {
             File use = new File(rootPath);
             logger.info("Begun exploring files");
             explore(use);
+            assignIds();
             logger.info("Finished exploring files");
             logger.info("Begun processing files");
-            for (GenericFile f : files) {
-                f.process(getDefinitionMapping(), parent);
-            }
+            process(index);
             logger.info("Finished processing files");
         } catch (IOException ioe) {
             throw new UncheckedIOException(logger.throwing(ioe));
         }
     }
 
+    /**
+     * Resolves every discovered file against the supplied definitions on the
+     * configured executor, then waits for all of them to finish.
+     * 
+     * @param classRef all known definitions
+     */
+    private void process(DefinitionIndex classRef) {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(files.size());
+        for (GenericFile f : files) {
+            tasks.add(CompletableFuture.runAsync(() -> f.process(classRef, parent), executor));
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException ce) {
+            if (ce.getCause() instanceof RuntimeException) {
+                throw logger.throwing((RuntimeException) ce.getCause());
+            }
+            throw logger.throwing(ce);
+        }
+    }
+
     private void explore(File root) throws IOException {
-        for (File look : root.listFiles()) {
+        File[] entries = directoryCache.list(root);
+        if (entries == null) {
+            throw new IOException("Unable to list " + root);
+        }
+        // Walk in a fixed order so that repeated runs produce the same diagram
+        Arrays.sort(entries);
+        for (File look : entries) {
             logger.debug("Exploring: " + look);
-            if (look.isDirectory() && !ignore(look.getAbsolutePath())) {
+            if (look.isDirectory() && !DirectoryCache.isSkipped(look) && !ignore(look.getAbsolutePath())) {
                 explore(look);
             } else if (look.isFile()) {
                 List<GenericFile> gfs = FileFactory.generateFile(look, rootPath);
@@ -99,23 +141,75 @@ public class Explore implements Runnable {
 
                     boolean canAdd = false;
                     if (f.isClassFile()) {
+                        register(gd);
                         classes.put(gd.getFullName(), (GenericClass) gd);
                         canAdd = true;
                     } else if (f.isInterfaceFile()) {
+                        register(gd);
                         interfaces.put(gd.getFullName(), (GenericInterface) gd);
                         canAdd = true;
                     } else if (f.isEnumFile()) {
+                        register(gd);
                         enums.put(gd.getFullName(), (GenericEnum) gd);
                         canAdd = true;
                     }
                     if (canAdd)
-                        parent.addComponent(gd.getContextArray(), gd.getFullName());
+                        parent.addComponent(gd.getContext(), gd.getFullName());
                     files.add(f);
                 }
             }
         }
     }
 
+    /**
+     * Assigns the next dense ID to a newly discovered definition. A definition
+     * that shares its full name with an earlier one replaces it and takes over
+     * its ID.
+     * 
+     * @param gd a definition
+     */
+    private void register(GenericDefinition gd) {
+        String fullName = gd.getFullName();
+        GenericDefinition prev = definitionsByName.put(fullName, gd);
+        if (prev == null) {
+            gd.setId(definitions.size());
+            definitions.add(gd);
+        } else {
+            gd.setId(prev.getId());
+            definitions.set(prev.getId(), gd);
+            classes.remove(fullName);
+            interfaces.remove(fullName);
+            enums.remove(fullName);
+        }
+    }
+
+    /**
+     * Renumbers all definitions in order of their full names, so that IDs do not
+     * depend on the order in which files were discovered, then indexes them by
+     * ID.
+     */
+    private void assignIds() {
+        definitions.sort(null);
+        for (int i = 0; i < definitions.size(); i++) {
+            definitions.get(i).setId(i);
+        }
+        index = new DefinitionIndex(definitions);
+        assignComponentIds(parent);
+    }
+
+    private void assignComponentIds(Cluster cluster) {
+        int[] ids = new int[cluster.getComponents().size()];
+        int i = 0;
+        for (String fullName : cluster.getComponents()) {
+            ids[i++] = definitionsByName.get(fullName).getId();
+        }
+        Arrays.sort(ids);
+        cluster.setComponentIds(ids);
+        for (Cluster child : cluster.getChildren()) {
+            assignComponentIds(child);
+        }
+    }
+
     private boolean ignore(String path) {
         return ignore.contains(formPackagePath(path));
     }
@@ -128,38 +222,94 @@ public class Explore implements Runnable {
 
     // Getter Methods
 
+    /**
+     * Returns all classes in this project, ordered by full name.
+     * 
+     * @return all classes in this project
+     */
     public Collection<GenericClass> getClasses() {
         return classes.values();
     }
 
+    /**
+     * Returns all interfaces in this project, ordered by full name.
+     * 
+     * @return all interfaces in this project
+     */
     public Collection<GenericInterface> getInterfaces() {
         return interfaces.values();
     }
 
+    /**
+     * Returns all enums in this project, ordered by full name.
+     * 
+     * @return all enums in this project
+     */
     public Collection<GenericEnum> getEnums() {
         return enums.values();
     }
 
+    /**
+     * Returns all definitions in this project, ordered by their IDs. Once
+     * {@link #run()} has completed, this is also the order of their full names.
+     * 
+     * @return all definitions in this project
+     */
     public List<GenericDefinition> getDefinitions() {
-        List<GenericDefinition> out = new ArrayList<>();
-        for (String s : classes.keySet())
-            out.add(classes.get(s));
-        for (String s : interfaces.keySet())
-            out.add(interfaces.get(s));
-        for (String s : enums.keySet())
-            out.add(enums.get(s));
-        return out;
+        return new ArrayList<>(definitions);
+    }
+
+    /**
+     * Returns the definition with the specified ID.
+     * 
+     * @param id an ID
+     * @return the definition with the specified ID
+     * @throws IndexOutOfBoundsException if argument is out of bounds
+     * 
+     * @since 2.1.0
+     */
+    public GenericDefinition getDefinition(int id) {
+        return definitions.get(id);
+    }
+
+    /**
+     * Returns the definition with the specified full name.
+     * 
+     * @param fullName the full name of a definition
+     * @return the definition with the specified full name, or {@code null} if
+     *         there is none
+     * 
+     * @since 2.1.0
+     */
+    public GenericDefinition getDefinition(String fullName) {
+        return definitionsByName.get(fullName);
+    }
+
+    /**
+     * Returns the number of definitions in this project. Definition IDs range
+     * from zero (inclusive) to this number (exclusive).
+     * 
+     * @return the number of definitions
+     * 
+     * @since 2.1.0
+     */
+    public int getNumberDefinitions() {
+        return definitions.size();
+    }
+
+    /**
+     * Returns an index of the definitions in this project, numbered by their IDs.
+     * 
+     * @return an index of the definitions in this project
+     * 
+     * @since 2.1.0
+     */
+    public DefinitionIndex getDefinitionIndex() {
+        return index;
     }
 
     public Map<String, GenericDefinition> getDefinitionMapping() {
-        Map<String, GenericDefinition> out = new HashMap<String, GenericDefinition>();
-        for (String s : classes.keySet())
-            out.put(s, classes.get(s));
-        for (String s : interfaces.keySet())
-            out.put(s, interfaces.get(s));
-        for (String s : enums.keySet())
-            out.put(s, enums.get(s));
-        return out;
+        return new HashMap<String, GenericDefinition>(definitionsByName);
     }
 
     public Cluster getClusterRoot() {
@@ -168,6 +318,35 @@ public class Explore implements Runnable {
 
     // Setter Methods
 
+    /**
+     * Sets the executor used to resolve the discovered files. Each file is
+     * submitted as its own task; by default, all files are resolved on the
+     * thread calling {@link #run()}.
+     * 
+     * @param executor an executor
+     * @throws NullPointerException if argument is {@code null}
+     * 
+     * @since 2.1.0
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Sets the cache that directories are listed through. Sharing a cache with
+     * an earlier walk of the same tree, such as a package browser, avoids
+     * listing the tree again. By default, each {@code Explore} has a cache of
+     * its own.
+     * 
+     * @param cache a directory cache
+     * @throws NullPointerException if argument is {@code null}
+     * 
+     * @since 2.1.0
+     */
+    public void setDirectoryCache(DirectoryCache cache) {
+        this.directoryCache = Objects.requireNonNull(cache);
+    }
+
     public static void setParameters(boolean inst, boolean func, boolean priv, boolean consta) {
         GenericFile.assignProcessStates(inst, func, priv, consta);
     }
@@ -28,6 +28,7 @@ import analysis.language.actor.GenericDefinition;
 import analysis.language.actor.GenericEnum;
 import analysis.language.actor.GenericInterface;
 import analysis.process.Cluster;
+import analysis.process.DefinitionIndex;
 
 public abstract class GenericFile {
 
@@ -102,24 +103,60 @@ public abstract class GenericFile {
 
     // Operations
 
+    /**
+     * Resolves this file against a set of definitions.
+     * 
+     * @param classRef all known definitions, keyed by full name
+     * @param parent   the root of the cluster tree
+     * @deprecated Use {@link #process(DefinitionIndex, Cluster)} instead, which
+     *             does not need to index the definitions on every call.
+     */
+    @Deprecated(since = "2.1.0")
     public void process(Map<String, GenericDefinition> classRef, Cluster parent) {
+        process(new DefinitionIndex(classRef.values()), parent);
+    }
+
+    /**
+     * Resolves this file against an index of definitions.
+     * 
+     * @param index  all known definitions
+     * @param parent the root of the cluster tree
+     * 
+     * @since 2.1.0
+     */
+    public void process(DefinitionIndex index, Cluster parent) {
         logger.info("Processing " + context + '.' + name);
-        Set<String> neighbors = parent.getCluster(context.split("\\.")).getComponents();
+        Set<String> neighbors = parent.getCluster(context).getComponents();
         if (isClassFile()) {
-            processClass(classRef, neighbors);
+            processClass(index, neighbors);
         } else if (isInterfaceFile()) {
-            processInterface(classRef, neighbors);
+            processInterface(index, neighbors);
         } else if (isEnumFile()) {
-            processEnum(classRef.get(getFullName()), classRef, neighbors);
+            // Only ever write to this file's own definition so that concurrently
+            // processed files cannot interleave on a shared one
+            processEnum(gen, index, neighbors);
         }
     }
 
+    /**
+     * 
+     * @deprecated Use {@link #processClass(DefinitionIndex, Set)} instead.
+     */
+    @Deprecated(since = "2.1.0")
     public void processClass(Map<String, GenericDefinition> classRef, Set<String> neighbors) {
-        handleInheritance(extractInheritance(), classRef);
+        processClass(new DefinitionIndex(classRef.values()), neighbors);
+    }
+
+    /**
+     * 
+     * @since 2.1.0
+     */
+    public void processClass(DefinitionIndex index, Set<String> neighbors) {
+        handleInheritance(extractInheritance(), index);
 
         ((GenericClass) gen).setAbstract(extractAbstract());
-        Set<String> bar = handleRealizations(extractRealizations(), classRef);
-        handleAssociations(neighbors, bar, classRef);
+        Set<String> bar = handleRealizations(extractRealizations(), index);
+        handleAssociations(neighbors, bar, index);
         if (getStatusFunction()) {
             extractFunctions();
         }
@@ -129,17 +166,44 @@ public abstract class GenericFile {
         }
     }
 
+    /**
+     * 
+     * @deprecated Use {@link #processInterface(DefinitionIndex, Set)} instead.
+     */
+    @Deprecated(since = "2.1.0")
     public void processInterface(Map<String, GenericDefinition> classRef, Set<String> neighbors) {
-        Set<String> bar = handleRealizations(extractRealizations(), classRef);
-        handleAssociations(neighbors, bar, classRef);
+        processInterface(new DefinitionIndex(classRef.values()), neighbors);
+    }
+
+    /**
+     * 
+     * @since 2.1.0
+     */
+    public void processInterface(DefinitionIndex index, Set<String> neighbors) {
+        Set<String> bar = handleRealizations(extractRealizations(), index);
+        handleAssociations(neighbors, bar, index);
         if (getStatusFunction()) {
             extractFunctions();
         }
     }
 
+    /**
+     * 
+     * @deprecated Use {@link #processEnum(GenericDefinition, DefinitionIndex, Set)}
+     *             instead.
+     */
+    @Deprecated(since = "2.1.0")
     public void processEnum(GenericDefinition in, Map<String, GenericDefinition> classRef, Set<String> neighbors) {
-        Set<String> bar = handleRealizations(extractRealizations(), classRef);
-        handleAssociations(neighbors, bar, classRef);
+        processEnum(in, new DefinitionIndex(classRef.values()), neighbors);
+    }
+
+    /**
+     * 
+     * @since 2.1.0
+     */
+    public void processEnum(GenericDefinition in, DefinitionIndex index, Set<String> neighbors) {
+        Set<String> bar = handleRealizations(extractRealizations(), index);
+        handleAssociations(neighbors, bar, index);
         if (getStatusFunction()) {
             extractFunctions();
             in.addFunction(Visibility.PUBLIC, "valueOf", in.getName(), Collections.singletonList("name"),
@@ -157,50 +221,46 @@ public abstract class GenericFile {
 
     // Other
 
-    private void handleInheritance(String parName, Map<String, GenericDefinition> ref) {
+    private void handleInheritance(String parName, DefinitionIndex index) {
         if (parName == null)
             return;
-        for (GenericDefinition gd : ref.values()) {
-            if (gd.getName().equals(parName)) {
-                ((GenericClass) gen).setInheritance(gd);
-                return;
-            }
+        int[] ids = index.getIds(parName);
+        if (ids.length > 0) {
+            ((GenericClass) gen).setInheritance(index.get(ids[0]));
         }
     }
 
-    private Set<String> handleRealizations(List<String> realiz, Map<String, GenericDefinition> ref) {
+    private Set<String> handleRealizations(List<String> realiz, DefinitionIndex index) {
         Set<String> bar = new HashSet<String>();
         for (String s : realiz) {
-            for (GenericDefinition gi : ref.values()) {
-                if (gi.getName().equals(s)) {
-                    gen.addRealization(gi);
-                    bar.add(s);
-                }
+            for (int id : index.getIds(s)) {
+                gen.addRealization(index.get(id));
+                bar.add(s);
             }
         }
         return bar;
     }
 
-    private void handleAssociations(Set<String> neighbors, Set<String> bar, Map<String, GenericDefinition> ref) {
+    private void handleAssociations(Set<String> neighbors, Set<String> bar, DefinitionIndex index) {
         List<String> noms = extractAssociations(neighbors);
         for (String s : noms) {
-            if (ref.get(s) != null) {
-                if (!bar.contains(breakFullName(ref.get(s).getFullName())[1])) { // TODO: While I only allow one
-                                                                                 // association
-                    gen.addAssociation(ref.get(s));
+            GenericDefinition direct = index.get(s);
+            if (direct != null) {
+                if (!bar.contains(direct.getName())) { // TODO: While I only allow one association
+                    gen.addAssociation(direct);
                 }
             } else if (!s.contains(ASSOCIATION_STAR_IMPORT)) {
-                for (GenericDefinition gd : ref.values()) {
-                    if (gd.getName().equals(s) && !bar.contains(gd.getName())) {
-                        gen.addAssociation(gd);
+                if (!bar.contains(s)) {
+                    for (int id : index.getIds(s)) {
+                        gen.addAssociation(index.get(id));
                     }
                 }
             } else {
-                String path = s.substring(0, s.length() - 1);
-                for (String con : ref.keySet()) {
-                    if (con.matches(path + "/.*") && !gen.hasAssociate((ref.get(con)))
-                            && !bar.contains(breakFullName(ref.get(con).getFullName())[1])) {
-                        gen.addAssociation(ref.get(con));
+                int[] range = index.getPackageRange(s.substring(0, s.length() - 1));
+                for (int id = range[0]; id < range[1]; id++) {
+                    GenericDefinition gd = index.get(id);
+                    if (!bar.contains(gd.getName())) {
+                        gen.addAssociation(gd);
                     }
                 }
             }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import guru.nidi.graphviz.engine.Format;
+
+/**
+ * The outcome of a render under a layout time budget: the images, and which
+ * of the fallback profiles they were laid out with, or why the last of them
+ * failed.
+ *
+ * @since 2.1.0
+ * @see ConvertVisual#drawWithinBudget(String, long, Format...)
+ * @see LayoutProfile#fallbacks()
+ */
+public final class BudgetedRender {
+
+    // Instance Variables
+
+    private final Map<Format, File> images;
+    private final int level;
+    private final LayoutProfile profile;
+    private final IOException failure;
+
+    // Constructors
+
+    BudgetedRender(Map<Format, File> images, int level, LayoutProfile profile, IOException failure) {
+        this.images = Collections.unmodifiableMap(images);
+        this.level = level;
+        this.profile = profile;
+        this.failure = failure;
+    }
+
+    // Getter Methods
+
+    /**
+     * Returns the rendered image, or that of the first format if several were
+     * rendered. If the render {@link #isFailed() failed}, the file may be
+     * missing or hold an earlier image.
+     *
+     * @return the image file
+     */
+    public File getImage() {
+        return images.values().iterator().next();
+    }
+
+    /**
+     * Returns the rendered images, all laid out alike. If the render
+     * {@link #isFailed() failed}, the files may be missing or hold earlier
+     * images.
+     *
+     * @return the image file of each format, in the order they were requested
+     */
+    public Map<Format, File> getImages() {
+        return images;
+    }
+
+    /**
+     * Returns the fallback level that produced the image.
+     *
+     * @return zero if the configured profile finished in time, otherwise the
+     *         index of the profile used in {@link LayoutProfile#fallbacks()}
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the profile that the image was laid out with.
+     *
+     * @return the layout profile used
+     */
+    public LayoutProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Checks whether a cheaper profile than the configured one had to be used.
+     *
+     * @return {@code true} if the render fell back
+     */
+    public boolean isFallback() {
+        return level > 0;
+    }
+
+    /**
+     * Checks whether no image was produced, because the last, cheapest
+     * profile failed as well.
+     *
+     * @return {@code true} if the render failed
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Returns why the last profile failed.
+     *
+     * @return the failure, or {@code null} if the render did not fail
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return images.values() + " (level " + level + ", " + profile + (isFailed() ? ", failed" : "") + ")";
+    }
+
+}
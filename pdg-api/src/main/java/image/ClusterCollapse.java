@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import analysis.language.actor.GenericDefinition;
+import analysis.language.actor.GenericEnum;
+import analysis.language.actor.GenericInterface;
+import analysis.process.Cluster;
+import analysis.process.Explore;
+
+/**
+ * Decides which clusters are drawn as a single summary node to keep a diagram
+ * within its detail budget.
+ * <p>
+ * A cluster is collapsed if it would otherwise show more than the per-cluster
+ * limit of nodes, counting each collapsed subcluster as one node. If the whole
+ * diagram still shows more nodes than the overall limit, further clusters are
+ * collapsed, deepest first and, at the same depth, largest first. The root
+ * cluster is never collapsed.
+ *
+ * @since 2.1.0
+ */
+final class ClusterCollapse {
+
+    // Instance Variables
+
+    /** The node that represents each definition, indexed by ID. */
+    private final int[] representative;
+    /** The outermost collapsed clusters, in tree order. */
+    private final List<Cluster> summaries;
+    /** The node number of each cluster in {@link #summaries}. */
+    private final Map<Cluster, Integer> summaryIds;
+
+    // Constructors
+
+    private ClusterCollapse(int[] representative, List<Cluster> summaries, Map<Cluster, Integer> summaryIds) {
+        this.representative = representative;
+        this.summaries = summaries;
+        this.summaryIds = summaryIds;
+    }
+
+    /**
+     * Determines the clusters to collapse.
+     *
+     * @param explore        a project on which {@link Explore#run()} has
+     *                       completed
+     * @param maxPerCluster  the maximum number of nodes shown directly inside a
+     *                       cluster, or zero for no limit
+     * @param maxNodes       the maximum number of nodes in the diagram, or zero
+     *                       for no limit
+     * @return the clusters to collapse, or {@code null} if none need to be
+     */
+    static ClusterCollapse of(Explore explore, int maxPerCluster, int maxNodes) {
+        if (maxPerCluster <= 0 && maxNodes <= 0) {
+            return null;
+        }
+        Map<Cluster, Cluster> parents = new IdentityHashMap<>();
+        Map<Cluster, Integer> depths = new IdentityHashMap<>();
+        Map<Cluster, Integer> shownSizes = new IdentityHashMap<>();
+        Map<Cluster, Boolean> collapsed = new IdentityHashMap<>();
+        List<Cluster> postOrder = new ArrayList<>();
+        Cluster root = explore.getClusterRoot();
+        index(root, null, 0, parents, depths, postOrder);
+
+        // Per-cluster limit, bottom up
+        for (Cluster c : postOrder) {
+            int size = c.getComponents().size();
+            for (Cluster child : c.getChildren()) {
+                size += collapsed.containsKey(child) ? 1 : shownSizes.get(child);
+            }
+            shownSizes.put(c, size);
+            if (c != root && maxPerCluster > 0 && size > maxPerCluster) {
+                collapsed.put(c, Boolean.TRUE);
+            }
+        }
+
+        // Overall limit, deepest and largest first
+        int total = shownSizes.get(root);
+        if (maxNodes > 0 && total > maxNodes) {
+            List<Cluster> candidates = new ArrayList<>(postOrder);
+            candidates.remove(root);
+            candidates.sort(Comparator.<Cluster>comparingInt(depths::get).reversed()
+                    .thenComparing(Comparator.<Cluster>comparingInt(shownSizes::get).reversed()));
+            for (Cluster c : candidates) {
+                if (total <= maxNodes) {
+                    break;
+                }
+                int saved = shownSizes.get(c) - 1;
+                if (collapsed.containsKey(c) || saved <= 0 || isHidden(c, parents, collapsed)) {
+                    continue;
+                }
+                collapsed.put(c, Boolean.TRUE);
+                total -= saved;
+                for (Cluster p = parents.get(c); p != null; p = parents.get(p)) {
+                    shownSizes.put(p, shownSizes.get(p) - saved);
+                }
+            }
+        }
+        if (collapsed.isEmpty()) {
+            return null;
+        }
+
+        int[] representative = new int[explore.getNumberDefinitions()];
+        for (int i = 0; i < representative.length; i++) {
+            representative[i] = i;
+        }
+        List<Cluster> summaries = new ArrayList<>();
+        Map<Cluster, Integer> summaryIds = new IdentityHashMap<>();
+        assign(root, collapsed, representative, summaries, summaryIds);
+        return new ClusterCollapse(representative, summaries, summaryIds);
+    }
+
+    private static void index(Cluster c, Cluster parent, int depth, Map<Cluster, Cluster> parents,
+            Map<Cluster, Integer> depths, List<Cluster> postOrder) {
+        parents.put(c, parent);
+        depths.put(c, depth);
+        for (Cluster child : c.getChildren()) {
+            index(child, c, depth + 1, parents, depths, postOrder);
+        }
+        postOrder.add(c);
+    }
+
+    /** Checks whether a cluster lies inside a collapsed cluster. */
+    private static boolean isHidden(Cluster c, Map<Cluster, Cluster> parents, Map<Cluster, Boolean> collapsed) {
+        for (Cluster p = parents.get(c); p != null; p = parents.get(p)) {
+            if (collapsed.containsKey(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Numbers the outermost collapsed clusters after the definitions. */
+    private static void assign(Cluster c, Map<Cluster, Boolean> collapsed, int[] representative,
+            List<Cluster> summaries, Map<Cluster, Integer> summaryIds) {
+        if (collapsed.containsKey(c)) {
+            int id = representative.length + summaries.size();
+            summaries.add(c);
+            summaryIds.put(c, id);
+            representAll(c, id, representative);
+            return;
+        }
+        for (Cluster child : c.getChildren()) {
+            assign(child, collapsed, representative, summaries, summaryIds);
+        }
+    }
+
+    private static void representAll(Cluster c, int id, int[] representative) {
+        for (int member : c.getComponentIds()) {
+            representative[member] = id;
+        }
+        for (Cluster child : c.getChildren()) {
+            representAll(child, id, representative);
+        }
+    }
+
+    // Getter Methods
+
+    /**
+     * Returns the node that represents the definition with the specified ID.
+     *
+     * @param id a definition ID
+     * @return {@code id} if the definition is drawn, or the node number of the
+     *         summary that contains it
+     */
+    int getRepresentative(int id) {
+        return representative[id];
+    }
+
+    /**
+     * Checks whether the definition with the specified ID is drawn as a node of
+     * its own.
+     *
+     * @param id a definition ID
+     * @return {@code true} if the definition is not collapsed
+     */
+    boolean isShown(int id) {
+        return representative[id] == id;
+    }
+
+    /**
+     * Returns the number of definitions drawn as nodes of their own.
+     *
+     * @return the number of definitions that are not collapsed
+     */
+    int getNumberShown() {
+        int count = 0;
+        for (int i = 0; i < representative.length; i++) {
+            if (representative[i] == i) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the outermost collapsed clusters, in tree order.
+     *
+     * @return the clusters that are drawn as summary nodes
+     */
+    List<Cluster> getSummaries() {
+        return summaries;
+    }
+
+    /**
+     * Returns the node number of a collapsed cluster.
+     *
+     * @param c a cluster
+     * @return its node number, or {@code null} if it is not drawn as a summary
+     */
+    Integer getSummaryId(Cluster c) {
+        return summaryIds.get(c);
+    }
+
+    /**
+     * Counts the definitions of each kind in a cluster subtree.
+     *
+     * @param explore the project
+     * @param c       a cluster
+     * @return the numbers of classes, interfaces and enums, in that order
+     */
+    static int[] countKinds(Explore explore, Cluster c) {
+        int[] counts = new int[3];
+        countKinds(explore, c, counts);
+        return counts;
+    }
+
+    private static void countKinds(Explore explore, Cluster c, int[] counts) {
+        for (int member : c.getComponentIds()) {
+            GenericDefinition gd = explore.getDefinition(member);
+            if (gd instanceof GenericEnum) {
+                counts[2]++;
+            } else if (gd instanceof GenericInterface) {
+                counts[1]++;
+            } else {
+                counts[0]++;
+            }
+        }
+        for (Cluster child : c.getChildren()) {
+            countKinds(explore, child, counts);
+        }
+    }
+
+}
@@ -6,9 +6,26 @@
 package image;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.function.IOConsumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -20,12 +37,176 @@ public class ConvertVisual {
 
     private static String imagePath;
 
+    private static Executor executor;
+
+    private static RenderCache cache;
+
+    private static int partitionSize;
+
+    private static long layoutBudgetMillis;
+
+    private static boolean concurrentEngine;
+
+    private static int batchWorkers;
+
+    private static CompletableFuture<?> engineSetup;
+
+    private static List<Format> extraFormats = List.of();
+
+    private static SvgRasterizer svgRasterizer;
+
+    /**
+     * Engine names that distinguish renders in the stamp and cache key. They
+     * include the versions of the engines, so that upgrading one renders again.
+     */
+    private static final String NATIVE_ENGINE = "dot";
+    private static final String GRAPHVIZ_ENGINE = "graphviz-java " + libraryVersion("guru.nidi", "graphviz-java")
+            + " viz.js " + libraryVersion("org.webjars.npm", "viz.js-graphviz-java");
+    private static final String UNKNOWN_VERSION = "unknown";
+    /** Cache key option of images rasterized from an SVG image. */
+    private static final String RASTERIZED_OPTION = "rasterized-from-svg";
+    /** Suffix of the overview image drawn in partitioned mode. */
+    private static final String OVERVIEW_SUFFIX = "-overview";
+
     private static Logger logger = LogManager.getLogger();
 
     public static void assignPath(String img) {
         imagePath = img;
     }
 
+    /**
+     * Sets the executor used to resolve source files and to render the DOT
+     * graph. If {@code null}, both are done on the calling thread.
+     * 
+     * @param exec an executor, or {@code null}
+     * 
+     * @since 2.1.0
+     */
+    public static void assignExecutor(Executor exec) {
+        executor = exec;
+    }
+
+    /**
+     * Sets the cache that renders are looked up in and stored to. If
+     * {@code null}, every render is performed.
+     * 
+     * @param renderCache a render cache, or {@code null}
+     * 
+     * @since 2.1.0
+     */
+    public static void assignCache(RenderCache renderCache) {
+        cache = renderCache;
+    }
+
+    /**
+     * Sets the maximum number of definitions drawn in a single diagram. If
+     * positive, {@link #generateUMLDiagram} draws the project in partitions
+     * (see {@link #drawPartitioned(String, Format, int)}); if zero, the whole
+     * project is drawn as one diagram.
+     * 
+     * @param maxDefinitions the maximum partition size, or zero
+     * @throws IllegalArgumentException if argument is negative
+     * 
+     * @since 2.1.0
+     */
+    public static void assignPartitionSize(int maxDefinitions) {
+        if (maxDefinitions < 0) {
+            throw new IllegalArgumentException("Invalid partition size: " + maxDefinitions);
+        }
+        partitionSize = maxDefinitions;
+    }
+
+    /**
+     * Sets the time that a single layout of the whole project may take. If
+     * positive, {@link #drawProject(String, Format)} falls back to cheaper
+     * layout settings when the configured ones take longer (see
+     * {@link #drawWithinBudget(String, Format, long)}); if zero, the layout is
+     * only limited by the engine's own timeout.
+     * 
+     * @param millis the layout time budget in milliseconds, or zero
+     * @throws IllegalArgumentException if argument is negative
+     * 
+     * @since 2.1.0
+     */
+    public static void assignLayoutBudget(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Invalid layout budget: " + millis);
+        }
+        layoutBudgetMillis = millis;
+    }
+
+    /**
+     * Declares whether the Graphviz engine used when no native {@code dot}
+     * executable is available can render several graphs at once, such as a
+     * pool of Javascript engines. If so, {@link #drawPartitioned} renders
+     * partitions concurrently on the assigned executor in that case as well.
+     * 
+     * @param concurrent {@code true} if the engine renders concurrently
+     * 
+     * @since 2.1.0
+     */
+    public static void assignConcurrentEngine(boolean concurrent) {
+        concurrentEngine = concurrent;
+    }
+
+    /**
+     * Sets the number of native {@code dot} processes that
+     * {@link #drawPartitioned} streams its diagrams through. If positive and a
+     * native {@code dot} executable is available, the diagrams are rendered
+     * with {@link NativeDotBatch}; if zero, each diagram is rendered by a
+     * process of its own.
+     * 
+     * @param workers the number of {@code dot} processes, or zero
+     * @throws IllegalArgumentException if argument is negative
+     * 
+     * @since 2.1.0
+     */
+    public static void assignBatchWorkers(int workers) {
+        if (workers < 0) {
+            throw new IllegalArgumentException("Invalid worker count: " + workers);
+        }
+        batchWorkers = workers;
+    }
+
+    /**
+     * Sets the Graphviz engine setup that renders without a native
+     * {@code dot} executable wait for. This lets the engines be set up in the
+     * background while the project is being processed.
+     * 
+     * @param setup the engine setup, or {@code null} to not wait
+     * 
+     * @since 2.1.0
+     */
+    public static void assignEngineSetup(CompletableFuture<?> setup) {
+        engineSetup = setup;
+    }
+
+    /**
+     * Sets the formats that {@link #generateUMLDiagram} draws the project in
+     * besides PNG. All formats of a diagram are produced from a single layout
+     * (see {@link #drawFormats(String, Format...)}).
+     * 
+     * @param formats the additional image formats
+     * 
+     * @since 2.1.0
+     */
+    public static void assignExtraFormats(Format... formats) {
+        extraFormats = List.of(formats);
+    }
+
+    /**
+     * Sets the rasterizer that {@link #drawFormats(String, Format...)} uses to
+     * produce the PNG image from the SVG image when both are drawn. If
+     * {@code null}, the PNG image is rendered by Graphviz.
+     * 
+     * @param rasterizer an SVG rasterizer, or {@code null}
+     * 
+     * @since 2.1.0
+     */
+    public static void assignSvgRasterizer(SvgRasterizer rasterizer) {
+        svgRasterizer = rasterizer;
+    }
+
     public static String generateUMLDiagram(String path, List<String> ignore, String name, boolean inst, boolean func,
             boolean priv, boolean consta) {
         File f = new File(path);
@@ -35,11 +216,348 @@ public class ConvertVisual {
         for (String s : ignore) {
             e.ignorePackage(s);
         }
+        if (executor != null) {
+            e.setExecutor(executor);
+        }
         e.run();
         DotProcess.setProject(e);
+        DotProcess.setExecutor(executor);
         logger.info("Ending Explore operations");
         logger.info("Beginning draw operations");
-        return draw(DotProcess.generateDot(), name, Format.PNG).getAbsolutePath();
+        Set<Format> formats = new LinkedHashSet<>();
+        formats.add(Format.PNG);
+        formats.addAll(extraFormats);
+        Format[] all = formats.toArray(new Format[0]);
+        if (partitionSize > 0) {
+            return drawPartitioned(name, partitionSize, all).get(0).get(Format.PNG).getAbsolutePath();
+        }
+        return drawFormats(name, all).get(Format.PNG).getAbsolutePath();
+    }
+
+    /**
+     * Draws the project assigned to {@link DotProcess}. When a native
+     * {@code dot} executable is available, the graph is streamed straight into
+     * it rather than being built as a string first. If the image already exists
+     * and was rendered from an identical graph, it is not rendered again; if an
+     * identical render is in the assigned {@link RenderCache}, it is copied.
+     * 
+     * @param name   the name of the image, without extension
+     * @param format the image format
+     * @return the image file
+     * @throws UncheckedIOException if a {@link #assignLayoutBudget(long) layout
+     *                              budget} is assigned and every fallback
+     *                              profile failed
+     * 
+     * @since 2.1.0
+     */
+    public static File drawProject(String name, Format format) {
+        return drawFormats(name, format).get(format);
+    }
+
+    /**
+     * Draws the project assigned to {@link DotProcess} in several formats,
+     * laying it out only once. With a native {@code dot} executable, a single
+     * process produces every format from the same layout. The Javascript
+     * engines of graphviz-java produce one format per layout, so without one,
+     * each format is laid out on its own, except that the PNG image is
+     * rasterized from the SVG image if both are drawn and an
+     * {@link #assignSvgRasterizer(SvgRasterizer) SVG rasterizer} is assigned;
+     * with a native {@code dot} executable, the PNG image is rasterized in that
+     * case as well. Images that are up to date or cached are not rendered
+     * again. If a {@link #assignLayoutBudget(long) layout budget} is assigned,
+     * the layout settings are chosen once for all formats (see
+     * {@link #drawWithinBudget(String, long, Format...)}).
+     * 
+     * @param name    the name of the images, without extension
+     * @param formats the image formats
+     * @return the image file of each format, in the order given
+     * @throws IllegalArgumentException if no format is given
+     * @throws UncheckedIOException     if a layout budget is assigned and
+     *                                  every fallback profile failed
+     * 
+     * @since 2.1.0
+     */
+    public static Map<Format, File> drawFormats(String name, Format... formats) {
+        if (formats.length == 0) {
+            throw new IllegalArgumentException("No image formats");
+        }
+        if (layoutBudgetMillis > 0) {
+            BudgetedRender result = drawWithinBudget(name, layoutBudgetMillis, formats);
+            if (result.isFailed()) {
+                throw new UncheckedIOException("Unable to draw " + result.getImage(), result.getFailure());
+            }
+            return result.getImages();
+        }
+        Map<Format, File> out = drawGraph(DotProcess::writeDot, name, formats);
+        RenderStamps.saveAll();
+        return out;
+    }
+
+    /**
+     * Draws the project assigned to {@link DotProcess}, falling back to
+     * cheaper layout settings if the configured ones take too long.
+     * 
+     * @param name         the name of the image, without extension
+     * @param format       the image format
+     * @param budgetMillis the time each layout but the last may take, in
+     *                     milliseconds
+     * @return the image, together with the profile it was laid out with; if
+     *         the last profile failed as well, a result that
+     *         {@link BudgetedRender#isFailed() reports the failure}
+     * @throws IllegalArgumentException if {@code budgetMillis} is not positive
+     * 
+     * @since 2.1.0
+     * @see #drawWithinBudget(String, long, Format...)
+     */
+    public static BudgetedRender drawWithinBudget(String name, Format format, long budgetMillis) {
+        return drawWithinBudget(name, budgetMillis, format);
+    }
+
+    /**
+     * Draws the project assigned to {@link DotProcess} in several formats,
+     * falling back to cheaper layout settings if the configured ones take too
+     * long. Each profile in {@link LayoutProfile#fallbacks()} of the resolved
+     * profile is tried in turn and cancelled if it has not finished within the
+     * budget, or skipped if it fails. The last, cheapest profile is given the
+     * engine's own timeout instead, so that an image is produced whenever
+     * possible. The profile is chosen once, and every format is drawn from its
+     * layout as with {@link #drawFormats(String, Format...)}, so all images
+     * show the same layout.
+     * <p>
+     * The budget is only enforced with a native {@code dot} executable, whose
+     * process is killed at the deadline. The Javascript engines of
+     * graphviz-java can neither be interrupted nor run two layouts at once, so
+     * with them every profile is laid out to completion, and the next profile
+     * is only tried if a layout fails.
+     * 
+     * @param name         the name of the images, without extension
+     * @param budgetMillis the time each layout but the last may take, in
+     *                     milliseconds
+     * @param formats      the image formats
+     * @return the images, together with the profile they were laid out with;
+     *         if the last profile failed as well, a result that
+     *         {@link BudgetedRender#isFailed() reports the failure}
+     * @throws IllegalArgumentException if {@code budgetMillis} is not
+     *                                  positive, or if no format is given
+     * 
+     * @since 2.1.0
+     */
+    public static BudgetedRender drawWithinBudget(String name, long budgetMillis, Format... formats) {
+        if (budgetMillis <= 0) {
+            throw new IllegalArgumentException("Invalid layout budget: " + budgetMillis);
+        }
+        if (formats.length == 0) {
+            throw new IllegalArgumentException("No image formats");
+        }
+        List<LayoutProfile> levels = DotProcess.resolveLayoutProfile().fallbacks();
+        Map<Format, File> out = prepareOutputs(name, formats);
+        for (int level = 0; level < levels.size(); level++) {
+            LayoutProfile profile = levels.get(level);
+            boolean last = level == levels.size() - 1;
+            IOException failure = null;
+            try {
+                render(w -> DotProcess.writeDot(w, profile), out, last ? 0 : budgetMillis);
+            } catch (IOException ioe) {
+                if (!last) {
+                    logger.warn("Layout with profile " + profile + " did not complete: " + ioe.getMessage());
+                    continue;
+                }
+                logger.error("Failure to draw UML via GraphViz.", ioe);
+                failure = ioe;
+            }
+            RenderStamps.saveAll();
+            BudgetedRender result = new BudgetedRender(out, level, profile, failure);
+            if (result.isFallback() && !result.isFailed()) {
+                logger.warn("Fell back to layout level " + level + " (" + profile + ") for " + out.values());
+            }
+            logger.info("Done");
+            return result;
+        }
+        // fallbacks() is never empty
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Draws the project assigned to {@link DotProcess} as one diagram per
+     * {@link DiagramPartition partition}, plus an overview diagram of how the
+     * partitions relate.
+     * 
+     * @param name           the name of the images, without extension; each
+     *                       partition appends its own name
+     * @param format         the image format
+     * @param maxDefinitions the maximum number of definitions per partition
+     * @return the overview image, followed by the image of each partition
+     * @throws IllegalArgumentException if {@code maxDefinitions} is not positive
+     * 
+     * @since 2.1.0
+     * @see #drawPartitioned(String, int, Format...)
+     */
+    public static List<File> drawPartitioned(String name, Format format, int maxDefinitions) {
+        List<File> out = new ArrayList<>();
+        for (Map<Format, File> images : drawPartitioned(name, maxDefinitions, format)) {
+            out.add(images.get(format));
+        }
+        return out;
+    }
+
+    /**
+     * Draws the project assigned to {@link DotProcess} as one diagram per
+     * {@link DiagramPartition partition}, plus an overview diagram of how the
+     * partitions relate, in several formats. Definitions outside a partition
+     * are drawn as stubs where they are related to its members. Each diagram
+     * is laid out once and drawn in every format as with
+     * {@link #drawFormats(String, Format...)}. When a native {@code dot}
+     * executable or a {@link #assignConcurrentEngine(boolean) concurrent
+     * engine} is available, the diagrams are rendered concurrently on the
+     * assigned executor; otherwise they are rendered one after another. If
+     * {@link #assignBatchWorkers(int) batch workers} are assigned and
+     * {@code dot} only has to produce a single format, the diagrams are
+     * instead streamed through that many native {@code dot} processes. The
+     * layout budget is not applied.
+     * 
+     * @param name           the name of the images, without extension; each
+     *                       partition appends its own name
+     * @param maxDefinitions the maximum number of definitions per partition
+     * @param formats        the image formats
+     * @return the image file of each format of the overview, followed by those
+     *         of each partition
+     * @throws IllegalArgumentException if {@code maxDefinitions} is not
+     *                                  positive, or if no format is given
+     * 
+     * @since 2.1.0
+     */
+    public static List<Map<Format, File>> drawPartitioned(String name, int maxDefinitions, Format... formats) {
+        if (formats.length == 0) {
+            throw new IllegalArgumentException("No image formats");
+        }
+        List<DiagramPartition> partitions = DotProcess.partition(maxDefinitions);
+        logger.info("Drawing " + partitions.size() + " partitions");
+        Map<String, IOConsumer<DotWriter>> graphs = new LinkedHashMap<>();
+        graphs.put(name + OVERVIEW_SUFFIX, w -> DotProcess.writeOverview(w, partitions));
+        for (DiagramPartition p : partitions) {
+            graphs.put(name + '-' + p.getName(), w -> DotProcess.writeDot(w, p));
+        }
+        List<Format> laidOut = new ArrayList<>(List.of(formats));
+        if (isRasterized(laidOut)) {
+            laidOut.remove(Format.PNG);
+        }
+        if (batchWorkers > 0 && NativeDot.isAvailable() && laidOut.size() == 1
+                && NativeDotBatch.supports(laidOut.get(0))) {
+            List<Map<Format, File>> images = drawBatched(graphs, laidOut.get(0), formats);
+            RenderStamps.saveAll();
+            return images;
+        }
+        Executor exec = executor != null && (NativeDot.isAvailable() || concurrentEngine) ? executor : Runnable::run;
+        List<CompletableFuture<Map<Format, File>>> renders = new ArrayList<>(graphs.size());
+        for (Map.Entry<String, IOConsumer<DotWriter>> graph : graphs.entrySet()) {
+            renders.add(CompletableFuture.supplyAsync(() -> drawGraph(graph.getValue(), graph.getKey(), formats),
+                    exec));
+        }
+        List<Map<Format, File>> out = new ArrayList<>(renders.size());
+        try {
+            for (CompletableFuture<Map<Format, File>> render : renders) {
+                out.add(render.join());
+            }
+        } catch (CompletionException ce) {
+            if (ce.getCause() instanceof RuntimeException) {
+                throw logger.throwing((RuntimeException) ce.getCause());
+            }
+            throw logger.throwing(ce);
+        } finally {
+            RenderStamps.saveAll();
+        }
+        return out;
+    }
+
+    /**
+     * Draws several graphs with {@link NativeDotBatch}, skipping those that are
+     * up to date or cached. If the PNG image is to be rasterized, it is
+     * rasterized from the SVG image afterwards.
+     * 
+     * @param graphs  the graph written by each function, keyed by image name
+     * @param format  the only format that {@code dot} produces
+     * @param formats all image formats
+     * @return the image files of each graph, in the order of {@code graphs}
+     */
+    private static List<Map<Format, File>> drawBatched(Map<String, IOConsumer<DotWriter>> graphs, Format format,
+            Format... formats) {
+        List<Map<Format, File>> out = new ArrayList<>(graphs.size());
+        Map<File, String> digests = new HashMap<>();
+        Map<File, SpooledDot> pending = new LinkedHashMap<>();
+        Map<File, String> stamps = new HashMap<>();
+        try {
+            for (Map.Entry<String, IOConsumer<DotWriter>> graph : graphs.entrySet()) {
+                Map<Format, File> images = prepareOutputs(graph.getKey(), formats);
+                out.add(images);
+                File image = images.get(format);
+                try {
+                    SpooledDot dot = SpooledDot.of(graph.getValue());
+                    digests.put(image, dot.getDigest());
+                    String stamp = RenderCache.key(dot.getDigest(), format, nativeEngine());
+                    if (reuse(image, stamp)) {
+                        dot.close();
+                    } else {
+                        pending.put(image, dot);
+                        stamps.put(image, stamp);
+                    }
+                } catch (IOException ioe) {
+                    logger.error("Failure to draw UML via GraphViz.", ioe);
+                }
+            }
+            if (!pending.isEmpty()) {
+                renderBatched(pending, stamps, format);
+            }
+        } finally {
+            pending.values().forEach(SpooledDot::close);
+        }
+        for (Map<Format, File> images : out) {
+            String digest = digests.get(images.get(format));
+            if (digest != null && images.size() > 1) {
+                rasterize(digest, nativeEngine(), images.get(Format.SVG), images.get(Format.PNG));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Renders spooled graphs with {@link NativeDotBatch}.
+     */
+    private static void renderBatched(Map<File, SpooledDot> pending, Map<File, String> stamps, Format format) {
+        Map<File, IOConsumer<DotWriter>> graphs = new LinkedHashMap<>();
+        pending.forEach((image, dot) -> graphs.put(image, dot.content()));
+        logger.info("Rendering " + pending.size() + " diagrams with " + Math.min(batchWorkers, pending.size())
+                + " dot processes");
+        Map<File, IOException> failures;
+        try {
+            failures = NativeDotBatch.render(graphs, format, batchWorkers);
+        } catch (IOException ioe) {
+            logger.error("Failure to draw UML via GraphViz.", ioe);
+            return;
+        }
+        for (File image : pending.keySet()) {
+            IOException failure = failures.get(image);
+            if (failure != null) {
+                logger.error("Failure to draw UML via GraphViz.", failure);
+            } else {
+                rendered(image, stamps.get(image));
+            }
+        }
+        logger.info("Done");
+    }
+
+    /**
+     * Draws the graph written by the specified function in several formats,
+     * laying it out once.
+     */
+    private static Map<Format, File> drawGraph(IOConsumer<DotWriter> content, String name, Format... formats) {
+        Map<Format, File> out = prepareOutputs(name, formats);
+        try {
+            render(content, out, 0);
+        } catch (IOException e) {
+            logger.error("Failure to draw UML via GraphViz.", e);
+        }
+        logger.info("Done");
+        return out;
     }
 
     public static File draw(String dotData, String name, String type) {
@@ -47,21 +565,221 @@ public class ConvertVisual {
     }
 
     public static File draw(String dotData, String name, Format format) {
-        File folder = new File(imagePath);
-        folder.mkdir();
+        File out = prepareOutput(name, format);
+        String stamp = RenderCache.key(DotDigest.of(dotData), format, GRAPHVIZ_ENGINE);
+        if (reuse(out, stamp)) {
+            RenderStamps.saveAll();
+            return out;
+        }
+        awaitEngineSetup();
         Graphviz graphviz = Graphviz.fromString(dotData);
 
-        File out = new File(
-                imagePath + File.separator + name + FilenameUtils.EXTENSION_SEPARATOR + format.fileExtension);
-
         try {
             graphviz.render(format).toFile(out);
+            rendered(out, stamp);
         } catch (Exception e) {
             logger.error("Failure to draw UML via GraphViz.", e);
             // PopoutAlert pa = new PopoutAlert(300, 250, "Failure to draw UML via
             // GraphViz.");
         }
+        RenderStamps.saveAll();
         logger.info("Done");
         return out;
     }
+
+    /**
+     * Renders the graph written by the specified function to several files
+     * from a single layout, skipping images that are up to date or cached.
+     * With a native {@code dot} executable, the graph is streamed into one
+     * {@code dot} process that writes every format, which is killed if it has
+     * not finished in time. Otherwise, the graph is built as a string and
+     * rendered by graphviz-java once per format, to completion. If the PNG
+     * image is to be rasterized from the SVG image, that is done last.
+     * 
+     * @param out           the file to write for each format
+     * @param timeoutMillis the time the layout may take in milliseconds, or zero
+     *                      for the engine's own timeout
+     * @throws IOException if the graph cannot be rendered
+     */
+    private static void render(IOConsumer<DotWriter> content, Map<Format, File> out, long timeoutMillis)
+            throws IOException {
+        boolean rasterize = isRasterized(out.keySet());
+        if (NativeDot.isAvailable()) {
+            String engine = nativeEngine();
+            try (SpooledDot dot = SpooledDot.of(content)) {
+                Map<Format, File> pending = new LinkedHashMap<>();
+                Map<Format, String> stamps = new HashMap<>();
+                for (Map.Entry<Format, File> image : out.entrySet()) {
+                    if (rasterize && image.getKey() == Format.PNG) {
+                        continue;
+                    }
+                    String stamp = RenderCache.key(dot.getDigest(), image.getKey(), engine);
+                    if (!reuse(image.getValue(), stamp)) {
+                        pending.put(image.getKey(), image.getValue());
+                        stamps.put(image.getKey(), stamp);
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    if (timeoutMillis > 0) {
+                        NativeDot.render(dot.content(), pending, timeoutMillis, TimeUnit.MILLISECONDS);
+                    } else {
+                        NativeDot.render(dot.content(), pending);
+                    }
+                    for (Map.Entry<Format, File> image : pending.entrySet()) {
+                        rendered(image.getValue(), stamps.get(image.getKey()));
+                    }
+                }
+                if (rasterize) {
+                    rasterize(dot.getDigest(), engine, out.get(Format.SVG), out.get(Format.PNG));
+                }
+            }
+            return;
+        }
+        StringBuilder dot = new StringBuilder();
+        DotWriter writer = new DotWriter(dot);
+        content.accept(writer);
+        writer.flush();
+        String dotData = dot.toString();
+        String digest = DotDigest.of(dotData);
+        for (Map.Entry<Format, File> image : out.entrySet()) {
+            if (rasterize && image.getKey() == Format.PNG) {
+                continue;
+            }
+            String stamp = RenderCache.key(digest, image.getKey(), GRAPHVIZ_ENGINE);
+            if (reuse(image.getValue(), stamp)) {
+                continue;
+            }
+            awaitEngineSetup();
+            try {
+                Graphviz.fromString(dotData).render(image.getKey()).toFile(image.getValue());
+            } catch (RuntimeException re) {
+                throw new IOException(re);
+            }
+            rendered(image.getValue(), stamp);
+        }
+        if (rasterize) {
+            rasterize(digest, GRAPHVIZ_ENGINE, out.get(Format.SVG), out.get(Format.PNG));
+        }
+    }
+
+    /**
+     * Checks whether the PNG image is rasterized from the SVG image when
+     * drawing the specified formats.
+     */
+    private static boolean isRasterized(Collection<Format> formats) {
+        return svgRasterizer != null && formats.contains(Format.SVG) && formats.contains(Format.PNG);
+    }
+
+    /**
+     * Rasterizes an SVG image drawn from the graph with the specified digest,
+     * unless the PNG image is up to date or cached.
+     * 
+     * @param engine the engine that rendered the SVG image
+     */
+    private static void rasterize(String digest, String engine, File svg, File png) {
+        if (!isUpToDate(svg, RenderCache.key(digest, Format.SVG, engine))) {
+            // The SVG render failed and was reported already
+            return;
+        }
+        String stamp = RenderCache.key(digest, Format.PNG, engine, RASTERIZED_OPTION);
+        if (reuse(png, stamp)) {
+            return;
+        }
+        try {
+            svgRasterizer.rasterize(svg, png);
+            rendered(png, stamp);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failure to rasterize " + svg, e);
+        }
+    }
+
+    private static void awaitEngineSetup() {
+        CompletableFuture<?> setup = engineSetup;
+        if (setup == null || setup.isDone()) {
+            return;
+        }
+        logger.info("Waiting for Graphviz engines");
+        try {
+            setup.join();
+        } catch (CompletionException | CancellationException e) {
+            logger.warn("Graphviz engine setup failed", e);
+        }
+    }
+
+    private static File prepareOutput(String name, Format format) {
+        File folder = new File(imagePath);
+        folder.mkdir();
+        return new File(
+                imagePath + File.separator + name + FilenameUtils.EXTENSION_SEPARATOR + format.fileExtension);
+    }
+
+    private static Map<Format, File> prepareOutputs(String name, Format... formats) {
+        Map<Format, File> out = new LinkedHashMap<>();
+        for (Format format : formats) {
+            out.put(format, prepareOutput(name, format));
+        }
+        return out;
+    }
+
+    // Render Skipping
+
+    /**
+     * Tries to avoid a render, either because the image is already up to date
+     * or because an identical render is cached.
+     * 
+     * @param out   the image file
+     * @param stamp the cache key of the render
+     * @return {@code true} if the image need not be rendered
+     */
+    private static boolean reuse(File out, String stamp) {
+        if (isUpToDate(out, stamp)) {
+            logger.info("Graph unchanged, skipping render of " + out);
+            return true;
+        }
+        if (cache != null && cache.fetch(stamp, out)) {
+            logger.info("Reused cached render for " + out);
+            writeStamp(out, stamp);
+            return true;
+        }
+        return false;
+    }
+
+    private static void rendered(File out, String stamp) {
+        writeStamp(out, stamp);
+        if (cache != null) {
+            cache.store(stamp, out);
+        }
+    }
+
+    /**
+     * Checks whether an image exists and was rendered from the graph described
+     * by the specified stamp.
+     */
+    private static boolean isUpToDate(File out, String stamp) {
+        return RenderStamps.matches(out, stamp);
+    }
+
+    private static void writeStamp(File out, String stamp) {
+        RenderStamps.record(out, stamp);
+    }
+
+    /** Returns the name of the native {@code dot} engine, with its version. */
+    private static String nativeEngine() {
+        return NATIVE_ENGINE + ' ' + NativeDot.version();
+    }
+
+    /** Returns the version of a library from its Maven metadata. */
+    private static String libraryVersion(String groupId, String artifactId) {
+        String resource = "/META-INF/maven/" + groupId + '/' + artifactId + "/pom.properties";
+        try (InputStream in = ConvertVisual.class.getResourceAsStream(resource)) {
+            if (in != null) {
+                Properties properties = new Properties();
+                properties.load(in);
+                return properties.getProperty("version", UNKNOWN_VERSION);
+            }
+        } catch (IOException ioe) {
+            // Treated as an unknown version
+        }
+        return UNKNOWN_VERSION;
+    }
 }
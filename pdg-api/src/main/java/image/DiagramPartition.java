@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import analysis.process.Cluster;
+import analysis.process.Explore;
+
+/**
+ * A part of a project that is drawn as a diagram of its own.
+ * <p>
+ * Partitions follow {@link Cluster} boundaries: a package subtree that fits
+ * the size limit forms a single partition, while a larger one is split into
+ * its own definitions (together with as many of its small subpackages as
+ * fit) and the partitions of its larger subpackages.
+ *
+ * @since 2.1.0
+ */
+public final class DiagramPartition {
+
+    /**
+     * Name used for the partition of the default package. Parentheses are not
+     * valid in package names, so that no package can have a partition of the
+     * same name.
+     */
+    private static final String ROOT_NAME = "(default)";
+
+    // Instance Variables
+
+    private final String name;
+    private final BitSet members;
+
+    // Constructors
+
+    private DiagramPartition(String name, BitSet members) {
+        this.name = name;
+        this.members = members;
+    }
+
+    /**
+     * Splits a processed project into partitions.
+     *
+     * @param explore        a project on which {@link Explore#run()} has
+     *                       completed
+     * @param maxDefinitions the maximum number of definitions per partition,
+     *                       unless a single package has more definitions of its
+     *                       own
+     * @return the partitions, in cluster tree order
+     * @throws NullPointerException     if {@code explore} is {@code null}
+     * @throws IllegalArgumentException if {@code maxDefinitions} is not positive
+     */
+    public static List<DiagramPartition> of(Explore explore, int maxDefinitions) {
+        Objects.requireNonNull(explore);
+        if (maxDefinitions <= 0) {
+            throw new IllegalArgumentException("Invalid partition size: " + maxDefinitions);
+        }
+        List<DiagramPartition> out = new ArrayList<>();
+        split(explore.getClusterRoot(), maxDefinitions, out);
+        return Collections.unmodifiableList(out);
+    }
+
+    private static void split(Cluster cluster, int max, List<DiagramPartition> out) {
+        BitSet group = new BitSet();
+        addComponents(cluster, group);
+        int part = 0;
+        for (Cluster child : cluster.getChildren()) {
+            int size = countDefinitions(child);
+            if (size > max) {
+                split(child, max, out);
+                continue;
+            }
+            if (group.cardinality() + size > max && !group.isEmpty()) {
+                out.add(new DiagramPartition(partitionName(cluster, part++), group));
+                group = new BitSet();
+            }
+            addSubtree(child, group);
+        }
+        if (!group.isEmpty()) {
+            out.add(new DiagramPartition(partitionName(cluster, part), group));
+        }
+    }
+
+    private static String partitionName(Cluster cluster, int part) {
+        String base = cluster.getAddress().isEmpty() ? ROOT_NAME : cluster.getAddress();
+        return part == 0 ? base : base + '-' + (part + 1);
+    }
+
+    private static int countDefinitions(Cluster cluster) {
+        int count = cluster.getComponents().size();
+        for (Cluster child : cluster.getChildren()) {
+            count += countDefinitions(child);
+        }
+        return count;
+    }
+
+    private static void addComponents(Cluster cluster, BitSet group) {
+        for (int id : cluster.getComponentIds()) {
+            group.set(id);
+        }
+    }
+
+    private static void addSubtree(Cluster cluster, BitSet group) {
+        addComponents(cluster, group);
+        for (Cluster child : cluster.getChildren()) {
+            addSubtree(child, group);
+        }
+    }
+
+    // Getter Methods
+
+    /**
+     * Returns the name of this partition, derived from the package it covers.
+     * Names are unique among the partitions of a project and only contain
+     * characters that are valid in file names.
+     *
+     * @return the name of this partition
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the IDs of the definitions in this partition.
+     *
+     * @return the IDs of the members of this partition
+     */
+    public BitSet getMembers() {
+        return (BitSet) members.clone();
+    }
+
+    /**
+     * Checks whether the definition with the specified ID is in this partition.
+     *
+     * @param id a definition ID
+     * @return {@code true} if the definition is in this partition
+     */
+    public boolean contains(int id) {
+        return members.get(id);
+    }
+
+    /**
+     * Returns the number of definitions in this partition.
+     *
+     * @return the number of definitions in this partition
+     */
+    public int size() {
+        return members.cardinality();
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + size() + ")";
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.io.function.IOConsumer;
+
+/**
+ * Computes the SHA-256 digest of DOT text. The text can be supplied either as
+ * a string or by a function that writes it to a {@link DotWriter}, in which
+ * case the graph is hashed as it is written and never held in memory.
+ *
+ * @since 2.1.0
+ */
+public final class DotDigest implements Appendable {
+
+    /** Name of the digest algorithm. */
+    private static final String ALGORITHM = "SHA-256";
+
+    // Instance Variables
+
+    private final MessageDigest digest;
+
+    // Constructors
+
+    private DotDigest() {
+        try {
+            digest = MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException nsae) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    // Operations
+
+    /**
+     * Computes the digest of the specified DOT text.
+     *
+     * @param dot DOT text
+     * @return the digest, as a lowercase hexadecimal string
+     */
+    public static String of(String dot) {
+        DotDigest d = new DotDigest();
+        d.append(dot);
+        return d.toHex();
+    }
+
+    /**
+     * Computes the digest of the DOT text written by the specified function.
+     *
+     * @param content writes the graph to the supplied writer
+     * @return the digest, as a lowercase hexadecimal string
+     * @throws IOException if {@code content} throws it
+     */
+    public static String of(IOConsumer<DotWriter> content) throws IOException {
+        DotDigest d = new DotDigest();
+        DotWriter writer = new DotWriter(d);
+        content.accept(writer);
+        writer.flush();
+        return d.toHex();
+    }
+
+    /**
+     * Computes the digest of the DOT text written by the specified function,
+     * passing the text on to another sink as it is written.
+     *
+     * @param content writes the graph to the supplied writer
+     * @param copy    receives a copy of the text
+     * @return the digest, as a lowercase hexadecimal string
+     * @throws IOException if {@code content} or {@code copy} throws it
+     */
+    static String of(IOConsumer<DotWriter> content, Appendable copy) throws IOException {
+        DotDigest d = new DotDigest();
+        DotWriter writer = new DotWriter(new Appendable() {
+            @Override
+            public Appendable append(CharSequence csq) throws IOException {
+                d.append(csq);
+                copy.append(csq);
+                return this;
+            }
+
+            @Override
+            public Appendable append(CharSequence csq, int start, int end) throws IOException {
+                return append(csq.subSequence(start, end));
+            }
+
+            @Override
+            public Appendable append(char c) throws IOException {
+                return append(String.valueOf(c));
+            }
+        });
+        content.accept(writer);
+        writer.flush();
+        return d.toHex();
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) {
+        digest.update(String.valueOf(csq).getBytes(StandardCharsets.UTF_8));
+        return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+        return append(String.valueOf(csq).subSequence(start, end));
+    }
+
+    @Override
+    public Appendable append(char c) {
+        return append(String.valueOf(c));
+    }
+
+    // Mechanics
+
+    private String toHex() {
+        byte[] bytes = digest.digest();
+        StringBuilder out = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            out.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return out.toString();
+    }
+
+}
@@ -6,8 +6,18 @@
 
 package image;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
@@ -17,6 +27,7 @@ import analysis.language.actor.GenericDefinition;
 import analysis.language.actor.GenericEnum;
 import analysis.language.actor.GenericInterface;
 import analysis.process.Cluster;
+import analysis.process.DefinitionGraph;
 import analysis.process.Explore;
 
 public class DotProcess {
@@ -25,131 +36,571 @@ public class DotProcess {
 
     private static Explore exp;
 
+    private static Executor executor;
+
+    private static int maxPerCluster;
+
+    private static int maxNodes;
+
+    private static MemberBudget memberBudget = MemberBudget.UNLIMITED;
+
+    private static LayoutProfile layoutProfile = LayoutProfile.PRETTY;
+
+    /** Relationships in {@link #exp}; {@code null} until first needed. */
+    private static DefinitionGraph graph;
+
+    /** Clusters of {@link #exp} to collapse; valid once {@link #collapseResolved}. */
+    private static ClusterCollapse collapse;
+
+    private static boolean collapseResolved;
+
     // Static Assignment
 
-    public static void setProject(Explore in) {
+    public static synchronized void setProject(Explore in) {
         exp = in;
+        graph = null;
+        collapse = null;
+        collapseResolved = false;
+    }
+
+    /**
+     * Sets the executor used to render node and edge fragments. Fragments are
+     * rendered in parallel but always written in the same order, so the output
+     * does not depend on the executor. If {@code null}, everything is rendered
+     * on the calling thread.
+     * 
+     * @param exec an executor, or {@code null}
+     * 
+     * @since 2.1.0
+     */
+    public static void setExecutor(Executor exec) {
+        executor = exec;
+    }
+
+    /**
+     * Sets the detail budget used when drawing the whole project. A package
+     * whose cluster would show more than {@code perCluster} nodes is drawn as a
+     * single summary node, and if the diagram would still have more than
+     * {@code nodes} nodes, further packages are summarized, deepest first.
+     * Relationships with summarized definitions are drawn as one edge per pair
+     * of nodes, labeled and weighted by their number. Zero disables a limit.
+     * 
+     * @param perCluster the maximum number of nodes per cluster, or zero
+     * @param nodes      the maximum number of nodes in the diagram, or zero
+     * @throws IllegalArgumentException if an argument is negative
+     * 
+     * @since 2.1.0
+     */
+    public static synchronized void setDetailBudget(int perCluster, int nodes) {
+        if (perCluster < 0 || nodes < 0) {
+            throw new IllegalArgumentException("Invalid detail budget: " + perCluster + ", " + nodes);
+        }
+        maxPerCluster = perCluster;
+        maxNodes = nodes;
+        collapse = null;
+        collapseResolved = false;
+    }
+
+    /**
+     * Sets the budget that limits the members listed in each node.
+     * 
+     * @param budget a member budget; {@link MemberBudget#UNLIMITED} lists every
+     *               member
+     * @throws NullPointerException if argument is {@code null}
+     * 
+     * @since 2.1.0
+     */
+    public static void setMemberBudget(MemberBudget budget) {
+        memberBudget = Objects.requireNonNull(budget);
+    }
+
+    /**
+     * Sets the layout profile written into the graph header. The default is
+     * {@link LayoutProfile#PRETTY}; with {@link LayoutProfile#AUTO}, the
+     * profile is chosen from the size of each graph.
+     * 
+     * @param profile a layout profile
+     * @throws NullPointerException if argument is {@code null}
+     * 
+     * @since 2.1.0
+     */
+    public static void setLayoutProfile(LayoutProfile profile) {
+        layoutProfile = Objects.requireNonNull(profile);
+    }
+
+    /**
+     * Returns the relationships in the current project, building them once.
+     */
+    private static synchronized DefinitionGraph graph() {
+        if (graph == null) {
+            graph = DefinitionGraph.of(exp);
+        }
+        return graph;
+    }
+
+    /**
+     * Returns the clusters of the current project to collapse under the
+     * detail budget, determining them once.
+     */
+    private static synchronized ClusterCollapse collapse() {
+        if (!collapseResolved) {
+            collapse = ClusterCollapse.of(exp, maxPerCluster, maxNodes);
+            collapseResolved = true;
+        }
+        return collapse;
     }
 
     // Operations
 
+    /**
+     * Splits the current project into partitions.
+     * 
+     * @param maxDefinitions the maximum number of definitions per partition
+     * @return the partitions of the current project
+     * @throws IllegalArgumentException if argument is not positive
+     * 
+     * @since 2.1.0
+     * @see DiagramPartition#of(Explore, int)
+     */
+    public static List<DiagramPartition> partition(int maxDefinitions) {
+        return DiagramPartition.of(exp, maxDefinitions);
+    }
+
+    /**
+     * Resolves the assigned layout profile for the current project, as
+     * {@link #writeDot(DotWriter)} would.
+     * 
+     * @return the layout profile used to draw the whole project, never
+     *         {@link LayoutProfile#AUTO}
+     * 
+     * @since 2.1.0
+     */
+    public static LayoutProfile resolveLayoutProfile() {
+        return new DotProcessor(exp, graph(), collapse(), null, null, null, layoutProfile).profile;
+    }
+
     public static String generateDot() {
-        return new DotProcessor(exp).generateDot();
+        StringBuilder out = new StringBuilder();
+        try {
+            writeDot(out);
+        } catch (IOException ioe) {
+            // StringBuilder does not throw IOException
+            throw new UncheckedIOException(ioe);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the DOT representation of the current project to the specified
+     * sink. The output is identical to that of {@link #generateDot()}, but is
+     * produced incrementally.
+     * 
+     * @param out the sink to write to
+     * @throws IOException if an I/O error occurs
+     * 
+     * @since 2.1.0
+     */
+    public static void writeDot(Appendable out) throws IOException {
+        DotWriter writer = new DotWriter(out);
+        writeDot(writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the DOT representation of the current project using the specified
+     * writer. The writer is not flushed.
+     * 
+     * @param writer the writer to use
+     * @throws IOException if an I/O error occurs
+     * 
+     * @since 2.1.0
+     */
+    public static void writeDot(DotWriter writer) throws IOException {
+        writeDot(writer, layoutProfile);
+    }
+
+    /**
+     * Writes the DOT representation of the current project with the specified
+     * layout profile instead of the assigned one. The writer is not flushed.
+     * 
+     * @param writer  the writer to use
+     * @param profile a layout profile
+     * @throws IOException if an I/O error occurs
+     * 
+     * @since 2.1.0
+     */
+    public static void writeDot(DotWriter writer, LayoutProfile profile) throws IOException {
+        new DotProcessor(exp, graph(), collapse(), writer, executor, null, Objects.requireNonNull(profile))
+                .generateDot();
+    }
+
+    /**
+     * Writes the DOT representation of one partition of the current project
+     * using the specified writer. Definitions outside the partition that are
+     * related to a member are drawn as stub nodes. Partitions are meant to be
+     * rendered concurrently, so the configured executor is not used. The writer
+     * is not flushed.
+     * 
+     * @param writer    the writer to use
+     * @param partition a partition of the current project
+     * @throws IOException if an I/O error occurs
+     * 
+     * @since 2.1.0
+     */
+    public static void writeDot(DotWriter writer, DiagramPartition partition) throws IOException {
+        new DotProcessor(exp, graph(), null, writer, null, partition.getMembers(), layoutProfile).generateDot();
+    }
+
+    /**
+     * Writes a package-level overview of the current project using the
+     * specified writer. Each partition is drawn as a single node, and the edges
+     * between two partitions are drawn as one edge labeled with their number.
+     * The writer is not flushed.
+     * 
+     * @param writer     the writer to use
+     * @param partitions the partitions of the current project
+     * @throws IOException if an I/O error occurs
+     * 
+     * @since 2.1.0
+     */
+    public static void writeOverview(DotWriter writer, List<DiagramPartition> partitions) throws IOException {
+        int[] partitionOf = new int[exp.getNumberDefinitions()];
+        for (int p = 0; p < partitions.size(); p++) {
+            BitSet members = partitions.get(p).getMembers();
+            for (int i = members.nextSetBit(0); i >= 0; i = members.nextSetBit(i + 1)) {
+                partitionOf[i] = p;
+            }
+        }
+        // Keyed by source * size + target, so that edges come out sorted
+        Map<Long, Integer> counts = new TreeMap<>();
+        DefinitionGraph graph = graph();
+        for (int i = 0; i < graph.getNumberNodes(); i++) {
+            for (int e = 0; e < graph.getFanOut(i); e++) {
+                int from = partitionOf[i];
+                int to = partitionOf[graph.getSuccessorAt(i, e)];
+                if (from != to) {
+                    counts.merge((long) from * partitions.size() + to, 1, Integer::sum);
+                }
+            }
+        }
+
+        writer.beginGraph("overview");
+        writer.append("\tnode[shape=box,style=filled,fillcolor=gray95];\n"
+                + "\tgraph[ranksep = 1, color=blue];\n"
+                + "\trankdir = TB;\n"
+                + StringUtils.LF);
+        for (int p = 0; p < partitions.size(); p++) {
+            DiagramPartition partition = partitions.get(p);
+            writer.append("\tn").append(p).append(" [label = \"").append(DotWriter.quote(partition.getName()))
+                    .append("\\n").append(partition.size()).append(" definitions\"];\n");
+        }
+        for (Map.Entry<Long, Integer> count : counts.entrySet()) {
+            int from = (int) (count.getKey() / partitions.size());
+            int to = (int) (count.getKey() % partitions.size());
+            writer.edge(from, to, "[label = \"" + count.getValue() + "\", weight = " + count.getValue() + "]");
+        }
+        writer.endGraph();
+    }
+
+    /**
+     * Renders the DOT fragment for a single item.
+     * 
+     * @param <T> the type of item
+     */
+    @FunctionalInterface
+    private interface Fragment<T> {
+        void write(DotWriter out, T item) throws IOException;
     }
 
     private static class DotProcessor {
 
-        Explore explore;
-        Map<String, Integer> reference;
-        int count;
+        /** Number of items rendered by a single task. */
+        private static final int RANGE_SIZE = 64;
+        /** Number of ranges rendered before their output is written out. */
+        private static final int RANGES_PER_BLOCK = 64;
 
-        DotProcessor(Explore explore) {
+        Explore explore;
+        DotWriter out;
+        Executor executor;
+        /** IDs of the definitions drawn in full, or {@code null} for all. */
+        BitSet include;
+        /** IDs of the definitions drawn at all, or {@code null} for all. */
+        BitSet shown;
+        /** Relationships in the project. */
+        DefinitionGraph graph;
+        /** Clusters drawn as summary nodes, or {@code null} for none. */
+        ClusterCollapse collapse;
+        /** The resolved layout profile. */
+        LayoutProfile profile;
+
+        DotProcessor(Explore explore, DefinitionGraph graph, ClusterCollapse collapse, DotWriter out,
+                Executor executor, BitSet include, LayoutProfile profile) {
             this.explore = explore;
+            this.graph = graph;
+            this.out = out;
+            this.executor = executor;
+            this.include = include;
+            int nodes = graph.getNumberNodes();
+            int edges = graph.getNumberEdges();
+            if (include != null) {
+                shown = (BitSet) include.clone();
+                for (int i = include.nextSetBit(0); i >= 0; i = include.nextSetBit(i + 1)) {
+                    for (int e = 0; e < graph.getFanOut(i); e++) {
+                        shown.set(graph.getSuccessorAt(i, e));
+                    }
+                    for (int e = 0; e < graph.getFanIn(i); e++) {
+                        shown.set(graph.getPredecessorAt(i, e));
+                    }
+                }
+                nodes = shown.cardinality();
+                edges = 0;
+                for (int i = shown.nextSetBit(0); i >= 0; i = shown.nextSetBit(i + 1)) {
+                    for (int e = 0; e < graph.getFanOut(i); e++) {
+                        if (shown.get(graph.getSuccessorAt(i, e))) {
+                            edges++;
+                        }
+                    }
+                }
+            } else {
+                this.collapse = collapse;
+                if (collapse != null) {
+                    nodes = collapse.getNumberShown() + collapse.getSummaries().size();
+                }
+            }
+            // The edge count is an upper bound, which is close enough to pick a profile
+            this.profile = profile.resolve(nodes, edges);
         }
 
-        String generateDot() {
-            reference = new HashMap<String, Integer>();
+        void generateDot() throws IOException {
+            processInitiation();
 
-            count = 0;
-            StringBuilder out = new StringBuilder(processInitiation());
+            processClasses();
 
-            out.append(processClasses());
+            processInterfaces();
 
-            out.append(processInterfaces());
+            processEnums();
 
-            out.append(processEnums());
+            processSummaries();
 
-            out = processClusters(out, explore.getClusterRoot(), 1, 30, 1);
+            if (profile.getClusters()) {
+                processClusters(explore.getClusterRoot(), 1, 30, 1);
+            }
 
-            out.append(processAssociations());
+            processAssociations();
 
-            out.append("\n}");
+            processAggregateAssociations();
 
-            return out.toString();
+            out.endGraph();
         }
 
-        private String processInitiation() { // Can manipulate here for adjusting draw settings
-            String out = "digraph G {\n"
-                    + "\tnode[shape=record,style=filled,fillcolor=gray95];\n"
-                    + "\tedge[concentrate=true];\n"
-                    + "\tgraph[splines = ortho, ranksep = 1, ratio = fill, color=blue];\n"
-                    + "\trankdir = TB;\n" // splines = ortho, nodesep = 1 for straight lines, looks rough, let user
-                                          // change how lines are displayed
-                    + StringUtils.LF;
+        private void processInitiation() throws IOException {
+            out.beginGraph("G");
+            profile.writeHeader(out);
+        }
+
+        private void processClasses() throws IOException {
+            writeAll(visible(explore.getClasses()), orStub((w, gc) -> generateClassDot(w, gc, gc.getId())));
+        }
+
+        private void processInterfaces() throws IOException {
+            writeAll(visible(explore.getInterfaces()), orStub((w, gi) -> generateInterfaceDot(w, gi, gi.getId())));
+        }
+
+        private void processEnums() throws IOException {
+            writeAll(visible(explore.getEnums()), orStub((w, ge) -> generateEnumDot(w, ge, ge.getId())));
+        }
+
+        private void processAssociations() throws IOException {
+            writeAll(visible(explore.getClasses()), this::generateDotClassAssociations);
+            writeAll(visible(explore.getInterfaces()), this::generateDotInterfaceAssociations);
+            writeAll(visible(explore.getEnums()), this::generateDotEnumAssociations);
+        }
+
+        // -- Partitions ------------------------------------------
+
+        private boolean isIncluded(int id) {
+            return include == null || include.get(id);
+        }
+
+        private <T extends GenericDefinition> Collection<T> visible(Collection<T> defs) {
+            if (shown == null && collapse == null) {
+                return defs;
+            }
+            List<T> out = new ArrayList<T>();
+            for (T gd : defs) {
+                if ((shown == null || shown.get(gd.getId())) && (collapse == null || collapse.isShown(gd.getId()))) {
+                    out.add(gd);
+                }
+            }
             return out;
         }
 
-        private String processClasses() {
-            StringBuilder out = new StringBuilder();
-            for (GenericClass gc : explore.getClasses()) {
-                reference.put(gc.getFullName(), count++);
-                out.append(generateClassDot((GenericClass) gc, reference.get(gc.getFullName())));
+        private <T extends GenericDefinition> Fragment<T> orStub(Fragment<T> full) {
+            return (w, gd) -> {
+                if (isIncluded(gd.getId())) {
+                    full.write(w, gd);
+                } else {
+                    String context = gd.getContext();
+                    w.stubNode(gd.getId(),
+                            StringUtils.isEmpty(context) ? gd.getName() : context + '.' + gd.getName());
+                }
+            };
+        }
+
+        /**
+         * Writes an edge unless both of its ends lie outside the partition, or
+         * one of them is summarized.
+         */
+        private void edge(DotWriter out, int from, int to, String attributes) throws IOException {
+            if (collapse != null && !(collapse.isShown(from) && collapse.isShown(to))) {
+                return;
+            }
+            if (isIncluded(from) || isIncluded(to)) {
+                out.edge(from, to, attributes);
+            }
+        }
+
+        // -- Summaries -------------------------------------------
+
+        private void processSummaries() throws IOException {
+            if (collapse == null) {
+                return;
+            }
+            for (Cluster c : collapse.getSummaries()) {
+                int[] counts = ClusterCollapse.countKinds(explore, c);
+                out.beginNode(collapse.getSummaryId(c));
+                out.append(StringEscapeUtils.escapeHtml4("<<package>>")).append("<BR/>").append(c.getAddress());
+                out.append('|');
+                writeCount(counts[0], "class", "classes", false);
+                writeCount(counts[1], "interface", "interfaces", counts[0] > 0);
+                writeCount(counts[2], "enum", "enums", counts[0] + counts[1] > 0);
+                out.endNode();
             }
-            return out.toString();
         }
 
-        private String processInterfaces() {
-            StringBuilder out = new StringBuilder();
-            for (GenericInterface gc : explore.getInterfaces()) {
-                reference.put(gc.getFullName(), count++);
-                out.append(generateInterfaceDot(gc, reference.get(gc.getFullName())));
+        private void writeCount(int count, String singular, String plural, boolean separate) throws IOException {
+            if (count == 0) {
+                return;
+            }
+            if (separate) {
+                out.append("<BR/>");
+            }
+            out.append(count).append(' ').append(count == 1 ? singular : plural);
+        }
+
+        /**
+         * Writes one edge for each pair of nodes that has relationships involving
+         * a summarized definition, labeled and weighted by their number.
+         */
+        private void processAggregateAssociations() throws IOException {
+            if (collapse == null) {
+                return;
+            }
+            long nodes = explore.getNumberDefinitions() + collapse.getSummaries().size();
+            // Keyed by source * nodes + target, so that edges come out sorted
+            Map<Long, Integer> counts = new TreeMap<>();
+            for (int i = 0; i < graph.getNumberNodes(); i++) {
+                int from = collapse.getRepresentative(i);
+                for (int e = 0; e < graph.getFanOut(i); e++) {
+                    int target = graph.getSuccessorAt(i, e);
+                    int to = collapse.getRepresentative(target);
+                    if ((from != i || to != target) && from != to) {
+                        counts.merge(from * nodes + to, 1, Integer::sum);
+                    }
+                }
+            }
+            for (Map.Entry<Long, Integer> count : counts.entrySet()) {
+                out.edge((int) (count.getKey() / nodes), (int) (count.getKey() % nodes),
+                        "[label = \"" + count.getValue() + "\", weight = " + count.getValue() + "]");
             }
-            return out.toString();
         }
 
-        private String processEnums() {
-            StringBuilder out = new StringBuilder();
-            for (GenericEnum ge : explore.getEnums()) {
-                reference.put(ge.getFullName(), count++);
-                out.append(generateEnumDot(ge, reference.get(ge.getFullName())));
+        private boolean hasIncluded(Cluster cluster) {
+            if (include == null) {
+                return true;
+            }
+            for (int id : cluster.getComponentIds()) {
+                if (include.get(id)) {
+                    return true;
+                }
+            }
+            for (Cluster c : cluster.getChildren()) {
+                if (hasIncluded(c)) {
+                    return true;
+                }
             }
-            return out.toString();
+            return false;
         }
 
-        private String processAssociations() {
-            StringBuilder out = new StringBuilder();
-            for (GenericDefinition c : explore.getClasses()) {
-                out.append(generateDotClassAssociations((GenericClass) c));
+        /**
+         * Writes the fragments of all items in iteration order. With an executor,
+         * items are split into fixed-size ranges that are rendered concurrently
+         * into private buffers; a block of ranges is written out, in order, before
+         * the next block is rendered, which bounds the memory held in buffers.
+         */
+        private <T> void writeAll(Collection<? extends T> items, Fragment<T> fragment) throws IOException {
+            if (executor == null || items.size() <= RANGE_SIZE) {
+                for (T item : items) {
+                    fragment.write(out, item);
+                }
+                return;
             }
-            for (GenericDefinition c : explore.getInterfaces()) {
-                out.append(generateDotInterfaceAssociations(c));
+            List<T> list = new ArrayList<T>(items);
+            int blockSize = RANGE_SIZE * RANGES_PER_BLOCK;
+            for (int block = 0; block < list.size(); block += blockSize) {
+                List<CompletableFuture<StringBuilder>> ranges = new ArrayList<>(RANGES_PER_BLOCK);
+                for (int from = block; from < Math.min(block + blockSize, list.size()); from += RANGE_SIZE) {
+                    List<T> range = list.subList(from, Math.min(from + RANGE_SIZE, list.size()));
+                    ranges.add(CompletableFuture.supplyAsync(() -> render(range, fragment), executor));
+                }
+                for (CompletableFuture<StringBuilder> range : ranges) {
+                    try {
+                        out.append(range.join());
+                    } catch (CompletionException ce) {
+                        if (ce.getCause() instanceof UncheckedIOException) {
+                            throw ((UncheckedIOException) ce.getCause()).getCause();
+                        }
+                        throw ce;
+                    }
+                }
             }
-            for (GenericDefinition c : explore.getEnums()) {
-                out.append(generateDotEnumAssociations(c));
+        }
+
+        private <T> StringBuilder render(List<T> range, Fragment<T> fragment) {
+            StringBuilder sb = new StringBuilder();
+            DotWriter writer = new DotWriter(sb);
+            try {
+                for (T item : range) {
+                    fragment.write(writer, item);
+                }
+                writer.flush();
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
             }
-            return out.toString();
+            return sb;
         }
 
         // -- GenericClass ----------------------------------------
 
-        public String generateClassDot(GenericClass gc, int val) {
-            String pref = "\tn" + val + " [label = <{";
-            StringBuilder out = new StringBuilder(formDotName(gc));
+        public void generateClassDot(DotWriter out, GenericClass gc, int val) throws IOException {
+            out.beginNode(val);
+            out.append(formDotName(gc));
             out.append('|');
-            for (int i = 0; i < gc.getNumberInstanceVariables(); i++) {
-                out.append(DotComponent.dotInstanceVariable(gc.getInstanceVariableAt(i)));
-                if (i + 1 < gc.getNumberInstanceVariables())
-                    out.append("<BR/>");
-            }
+            writeInstanceVariableDot(out, gc);
             out.append('|');
-            out.append(getFunctionDot(gc));
-            String post = "}>];\n";
-            return out.insert(0, pref).append(post).toString();
+            writeFunctionDot(out, gc);
+            out.endNode();
         };
 
-        public String generateDotClassAssociations(GenericClass gc) {
-            int val = reference.get(gc.getFullName());
-            StringBuilder out = new StringBuilder();
+        public void generateDotClassAssociations(DotWriter out, GenericClass gc) throws IOException {
+            int val = gc.getId();
             if (gc.getInheritance() != null) {
-                out.append("\tn" + val + " -> n" + reference.get(gc.getInheritance().getFullName()));
-                out.append("[arrowhead=onormal];\n");
+                edge(out, val, gc.getInheritance().getId(), "[arrowhead=onormal]");
             }
-            out.append(generateDotAssociations(gc));
+            generateDotAssociations(out, gc);
             for (GenericDefinition i : gc.getRealizations()) {
-                out.append("\tn" + val + " -> n" + reference.get(i.getFullName()));
-                out.append("[arrowhead=onormal, style=dashed];\n");
+                edge(out, val, i.getId(), "[arrowhead=onormal, style=dashed]");
             }
-            return out.toString();
         }
 
         private static String formDotName(GenericClass gc) {
@@ -162,114 +613,100 @@ public class DotProcess {
 
         // -- GenericInterface ------------------------------------
 
-        public String generateInterfaceDot(GenericDefinition gi, int val) {
-            String pref = "\tn" + val + " [label = <{";
-            String out = formInterfaceName() + "<BR/>" + gi.getName() + "|";
-            out += "|";
-            out += getFunctionDot(gi);
-            String post = "}>];\n";
-            return pref + out + post;
+        public void generateInterfaceDot(DotWriter out, GenericDefinition gi, int val) throws IOException {
+            out.beginNode(val);
+            out.append(formInterfaceName()).append("<BR/>").append(gi.getName()).append('|');
+            out.append('|');
+            writeFunctionDot(out, gi);
+            out.endNode();
         }
 
         private String formInterfaceName() {
             return StringEscapeUtils.escapeHtml4("<<interface>>");
         }
 
-        public String generateDotInterfaceAssociations(GenericDefinition gi) {
-            int val = reference.get(gi.getFullName());
-            StringBuilder out = new StringBuilder();
+        public void generateDotInterfaceAssociations(DotWriter out, GenericDefinition gi) throws IOException {
+            int val = gi.getId();
             for (GenericDefinition i : gi.getRealizations()) {
-                out.append("\tn" + val + " -> n" + reference.get(i.getFullName()));
-                out.append("[arrowhead=onormal, style=solid];\n");
+                edge(out, val, i.getId(), "[arrowhead=onormal, style=solid]");
             }
-            return out.append(generateDotAssociations(gi)).toString();
+            generateDotAssociations(out, gi);
         }
 
         // -- Generic Enum ----------------------------------------
 
-        public String generateEnumDot(GenericEnum gi, int val) {
-            String pref = "\tn" + val + " [label = <{";
-            StringBuilder out = new StringBuilder(formEnumName() + "<BR/>" + gi.getName() + "|");
-            for (int i = 0; i < gi.getNumberInstanceVariables(); i++) {
-                out.append(DotComponent.dotInstanceVariable(gi.getInstanceVariableAt(i)));
-                if (i + 1 < gi.getNumberInstanceVariables())
-                    out.append("<BR/>");
-            }
+        public void generateEnumDot(DotWriter out, GenericEnum gi, int val) throws IOException {
+            out.beginNode(val);
+            out.append(formEnumName()).append("<BR/>").append(gi.getName()).append('|');
+            writeInstanceVariableDot(out, gi);
             out.append('|');
-            out.append(getFunctionDot(gi));
-            String post = "}>];\n";
-            return pref + out.toString() + post;
+            writeFunctionDot(out, gi);
+            out.endNode();
         }
 
         private String formEnumName() {
             return StringEscapeUtils.escapeHtml4("<<enumeration>>");
         }
 
-        public String generateDotEnumAssociations(GenericDefinition gi) {
-            int val = reference.get(gi.getFullName());
-            StringBuilder out = new StringBuilder();
+        public void generateDotEnumAssociations(DotWriter out, GenericDefinition gi) throws IOException {
+            int val = gi.getId();
             for (GenericDefinition i : gi.getRealizations()) {
-                out.append("\tn" + val + " -> n" + reference.get(i.getFullName()));
-                out.append("[arrowhead=onormal, style=dotted];\n");
+                edge(out, val, i.getId(), "[arrowhead=onormal, style=dotted]");
             }
-            return out.append(generateDotAssociations(gi)).toString();
+            generateDotAssociations(out, gi);
         }
 
         // -- GenericDefinition -----------------------------------
 
-        protected String generateDotAssociations(GenericDefinition gd) {
-            StringBuilder out = new StringBuilder();
+        protected void generateDotAssociations(DotWriter out, GenericDefinition gd) throws IOException {
+            int mV = gd.getId();
             for (GenericDefinition c : gd.getClassAssociates()) {
-                int mV = reference.get(gd.getFullName());
-                int yV = reference.get(c.getFullName());
-                if (!c.hasAssociate(gd) || mV <= yV) { // Processes numerically, so if mutual, only draw if first time
-                                                       // seeing
-                    out.append("\tn" + mV + " -> n" + yV);
-                    if (c.hasAssociate(gd)) {
-                        out.append("[arrowhead=none]");
-                    } else {
-                        out.append("[arrowhead=normal]");
-                    }
-                    out.append(";\n");
+                int yV = c.getId();
+                boolean mutual = c.hasAssociate(gd);
+                if (!mutual || mV <= yV) { // Processes numerically, so if mutual, only draw if first time
+                                           // seeing
+                    edge(out, mV, yV, mutual ? "[arrowhead=none]" : "[arrowhead=normal]");
                 }
             }
-            return out.toString();
         }
 
         // -- Helper ----------------------------------------------
 
-        private String getFunctionDot(GenericDefinition gd) {
-            StringBuilder out = new StringBuilder();
-            for (int i = 0; i < gd.getNumberFunctions(); i++) {
-                out.append(DotComponent.dotFunction(gd.getFunctionAt(i)));
-                if (i + 1 < gd.getNumberFunctions())
+        private void writeInstanceVariableDot(DotWriter out, GenericClass gc) throws IOException {
+            writeLines(out, memberBudget.instanceVariableLines(gc));
+        }
+
+        private void writeFunctionDot(DotWriter out, GenericDefinition gd) throws IOException {
+            writeLines(out, memberBudget.functionLines(gd));
+        }
+
+        private void writeLines(DotWriter out, List<String> lines) throws IOException {
+            for (int i = 0; i < lines.size(); i++) {
+                out.append(lines.get(i));
+                if (i + 1 < lines.size())
                     out.append("<BR/>");
             }
-            return out.toString();
         }
 
         // -- Clusters --------------------------------------------
 
-        private StringBuilder processClusters(StringBuilder out, Cluster next, int depth, int fontSize, int penWidth) {
-            if (next == null)
-                return out;
-            String address = next.getAddress();
-            out.append(tabBuffer(depth) + "subgraph cluster_" + address.replaceAll("\\.", "_") + "{\n");
-            out.append(tabBuffer(depth + 1) + "label = \"" + address + "\";\n");
-            out.append(tabBuffer(depth + 1) + "fontsize = " + fontSize + ";\n");
-            out.append(tabBuffer(depth + 1) + "penwidth = " + penWidth + ";\n");
-            for (String gd : next.getComponents()) {
-                out.append(tabBuffer(depth + 1) + "n" + reference.get(gd) + ";\n");
+        private void processClusters(Cluster next, int depth, int fontSize, int penWidth) throws IOException {
+            if (next == null || !hasIncluded(next))
+                return;
+            if (collapse != null && collapse.getSummaryId(next) != null) {
+                out.clusterMember(depth, collapse.getSummaryId(next));
+                return;
+            }
+            out.beginCluster(depth, next.getAddress(), fontSize, penWidth);
+            for (int id : next.getComponentIds()) {
+                if (isIncluded(id)) {
+                    out.clusterMember(depth + 1, id);
+                }
             }
             for (Cluster c : next.getChildren()) {
-                out = processClusters(out, c, depth + 1, fontSize - 4, penWidth + 1);
+                processClusters(c, depth + 1, fontSize - 4, penWidth + 1);
             }
-            out.append(tabBuffer(depth) + "}\n");
-            return out;
-        }
-
-        private String tabBuffer(int in) {
-            return "\t".repeat(in);
+            out.endCluster(depth);
         }
 
     }
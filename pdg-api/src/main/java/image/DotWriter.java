@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Writes a DOT graph incrementally to an {@link Appendable} or
+ * {@link OutputStream}.
+ * <p>
+ * Statements are collected in a reusable buffer that is handed to the
+ * underlying sink whenever it fills up, so the size of the graph does not
+ * determine the amount of memory used while writing it.
+ *
+ * @since 2.1.0
+ */
+public class DotWriter implements Closeable, Flushable {
+
+    /** Number of characters buffered before they are written out. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The underlying sink. */
+    private final Appendable out;
+    /** The underlying sink, if it is a {@link Writer}. */
+    private final Writer writer;
+    /** Pending output. */
+    private final StringBuilder buffer;
+    /** Scratch space for copying {@link #buffer} to {@link #writer}. */
+    private char[] chunk;
+
+    /**
+     * Constructs a new {@code DotWriter} that writes to an {@code Appendable}.
+     *
+     * @param out the sink
+     * @throws NullPointerException if argument is {@code null}
+     */
+    public DotWriter(Appendable out) {
+        this.out = Objects.requireNonNull(out);
+        this.writer = out instanceof Writer ? (Writer) out : null;
+        this.buffer = new StringBuilder(BUFFER_SIZE + BUFFER_SIZE / 2);
+    }
+
+    /**
+     * Constructs a new {@code DotWriter} that writes UTF-8 encoded text to an
+     * {@code OutputStream}.
+     *
+     * @param out the sink
+     * @throws NullPointerException if argument is {@code null}
+     */
+    public DotWriter(OutputStream out) {
+        this(new OutputStreamWriter(Objects.requireNonNull(out), StandardCharsets.UTF_8));
+    }
+
+    // Graph Structure
+
+    /**
+     * Opens a directed graph.
+     *
+     * @param name the name of the graph
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public DotWriter beginGraph(String name) throws IOException {
+        return append("digraph ").append(name).append(" {\n");
+    }
+
+    /**
+     * Closes the graph opened by {@link #beginGraph(String)}.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public DotWriter endGraph() throws IOException {
+        return append("\n}");
+    }
+
+    /**
+     * Opens an HTML-labeled node. The label is written with
+     * {@link #append(CharSequence)} and the node is closed with
+     * {@link #endNode()}.
+     *
+     * @param id the node number
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public DotWriter beginNode(int id) throws IOException {
+        return append("\tn").append(id).append(" [label = <{");
+    }
+
+    /**
+     * Closes the node opened by {@link #beginNode(int)}.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public DotWriter endNode() throws IOException {
+        return append("}>];\n");
+    }
+
+    /**
+     * Writes a plain node that stands in for a definition drawn in another
+     * diagram.
+     *
+     * @param id    the node number
+     * @param label the label of the node
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public DotWriter stubNode(int id, String label) throws IOException {
+        return append("\tn").append(id).append(" [label = \"").append(quote(label))
+                .append("\", shape = box, style = dashed];\n");
+    }
+
+    /**
+     * Writes an edge.
+     *
+     * @param from       the source node number
+     * @param to         the target node number
+     * @param attributes the edge attributes, including the enclosing brackets
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public DotWriter edge(int from, int to, String attributes) throws IOException {
+        return append("\tn").append(from).append(" -> n").append(to).append(attributes).append(";\n");
+    }
+
+    /**
+     * Opens a cluster subgraph.
+     *
+     * @param depth    the nesting depth of the cluster
+     * @param address  the package name that the cluster represents
+     * @param fontSize the font size of the cluster label
+     * @param penWidth the width of the cluster border
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public DotWriter beginCluster(int depth, String address, int fontSize, int penWidth) throws IOException {
+        indent(depth).append("subgraph cluster_").append(address.replace('.', '_')).append("{\n");
+        indent(depth + 1).append("label = \"").append(address).append("\";\n");
+        indent(depth + 1).append("fontsize = ").append(fontSize).append(";\n");
+        return indent(depth + 1).append("penwidth = ").append(penWidth).append(";\n");
+    }
+
+    /**
+     * Places a node in the enclosing cluster.
+     *
+     * @param depth the nesting depth of the node
+     * @param id    the node number
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public DotWriter clusterMember(int depth, int id) throws IOException {
+        return indent(depth).append('n').append(id).append(";\n");
+    }
+
+    /**
+     * Closes the cluster opened by {@link #beginCluster(int, String, int, int)}.
+     *
+     * @param depth the nesting depth of the cluster
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public DotWriter endCluster(int depth) throws IOException {
+        return indent(depth).append("}\n");
+    }
+
+    // Raw Output
+
+    /**
+     * Writes the specified number of tabs.
+     *
+     * @param depth the number of tabs
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public DotWriter indent(int depth) throws IOException {
+        for (int i = 0; i < depth; i++) {
+            buffer.append('\t');
+        }
+        return drain();
+    }
+
+    /**
+     * Writes text verbatim.
+     *
+     * @param csq the text to write
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public DotWriter append(CharSequence csq) throws IOException {
+        buffer.append(csq);
+        return drain();
+    }
+
+    /**
+     * Writes a character verbatim.
+     *
+     * @param c the character to write
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public DotWriter append(char c) throws IOException {
+        buffer.append(c);
+        return drain();
+    }
+
+    /**
+     * Writes the decimal representation of an integer.
+     *
+     * @param i the integer to write
+     * @return this writer
+     * @throws IOException if an I/O error occurs
+     */
+    public DotWriter append(int i) throws IOException {
+        buffer.append(i);
+        return drain();
+    }
+
+    /**
+     * Hands all pending output to the underlying sink, then flushes the sink if
+     * it is {@link Flushable}.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBuffer();
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+    /**
+     * Flushes this writer, then closes the underlying sink if it is
+     * {@link Closeable}.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (out instanceof Closeable) {
+            ((Closeable) out).close();
+        }
+    }
+
+    // Mechanics
+
+    /** Escapes a string for use inside a double-quoted DOT ID. */
+    static String quote(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private DotWriter drain() throws IOException {
+        if (buffer.length() >= BUFFER_SIZE) {
+            writeBuffer();
+        }
+        return this;
+    }
+
+    private void writeBuffer() throws IOException {
+        int len = buffer.length();
+        if (len == 0) {
+            return;
+        }
+        if (writer != null) {
+            if (chunk == null || chunk.length < len) {
+                chunk = new char[Math.max(len, BUFFER_SIZE)];
+            }
+            buffer.getChars(0, len, chunk, 0);
+            writer.write(chunk, 0, len);
+        } else {
+            out.append(buffer);
+        }
+        buffer.setLength(0);
+    }
+
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A set of Graphviz layout settings that trades layout quality against layout
+ * time.
+ * <p>
+ * The profile is written into the graph header, including the layout engine
+ * (Graphviz's {@code layout} attribute takes precedence over the engine the
+ * renderer was started with), so renders with different profiles never share
+ * a cache entry. Three profiles are predefined:
+ * <ul>
+ * <li>{@link #PRETTY}: {@code dot} with orthogonal, concentrated edges. The
+ * best looking and by far the most expensive.
+ * <li>{@link #BALANCED}: {@code dot} with polyline edges.
+ * <li>{@link #FAST}: {@code sfdp} with straight edges, for very large graphs.
+ * </ul>
+ * {@link #AUTO} picks one of them from the size of the graph. The Javascript
+ * engines do not include {@code sfdp}, so without a {@link NativeDot native
+ * dot} executable, {@code neato} lays out in its place.
+ *
+ * @since 2.1.0
+ */
+public final class LayoutProfile {
+
+    /**
+     * Enumerates the supported layout engines.
+     *
+     * @since 2.1.0
+     */
+    public enum Engine {
+        /** Hierarchical layout. */
+        DOT,
+        /** Spring model layout. */
+        NEATO,
+        /** Force-directed layout. */
+        FDP,
+        /** Multiscale force-directed layout, for large graphs. */
+        SFDP;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Enumerates the supported ways of drawing edges.
+     *
+     * @since 2.1.0
+     */
+    public enum Splines {
+        /** Straight line segments. */
+        LINE,
+        /** Polylines. */
+        POLYLINE,
+        /** Curved arcs. */
+        CURVED,
+        /** Axis-aligned segments. */
+        ORTHO,
+        /** Splines. */
+        SPLINE;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** Largest graph, in nodes plus edges, for which {@link #AUTO} picks {@link #PRETTY}. */
+    public static final int AUTO_PRETTY_LIMIT = 500;
+    /** Largest graph, in nodes plus edges, for which {@link #AUTO} picks {@link #BALANCED}. */
+    public static final int AUTO_BALANCED_LIMIT = 3000;
+
+    /** Orthogonal, concentrated edges laid out by {@code dot}. */
+    public static final LayoutProfile PRETTY = new LayoutProfile("pretty", Engine.DOT, Splines.ORTHO, true, "1",
+            "fill", true);
+    /** Polyline edges laid out by {@code dot}. */
+    public static final LayoutProfile BALANCED = new LayoutProfile("balanced", Engine.DOT, Splines.POLYLINE, false,
+            "0.75", null, true);
+    /**
+     * Straight edges laid out by {@code sfdp}, or by {@code neato} if no
+     * {@link NativeDot native dot} executable is available, as the Javascript
+     * engines do not include {@code sfdp}.
+     */
+    public static final LayoutProfile FAST = new LayoutProfile("fast", Engine.SFDP, Splines.LINE, false, null, null,
+            true);
+    /** Chooses one of the other profiles from the size of the graph. */
+    public static final LayoutProfile AUTO = new LayoutProfile("auto", null, null, false, null, null, true);
+
+    // Instance Variables
+
+    private final String name;
+    private final Engine engine;
+    private final Splines splines;
+    private final boolean concentrate;
+    private final String rankSep;
+    private final String ratio;
+    private final boolean clusters;
+
+    // Constructors
+
+    private LayoutProfile(String name, Engine engine, Splines splines, boolean concentrate, String rankSep,
+            String ratio, boolean clusters) {
+        this.name = name;
+        this.engine = engine;
+        this.splines = splines;
+        this.concentrate = concentrate;
+        this.rankSep = rankSep;
+        this.ratio = ratio;
+        this.clusters = clusters;
+    }
+
+    /**
+     * Returns the predefined profile with the specified name.
+     *
+     * @param name {@code fast}, {@code balanced}, {@code pretty} or
+     *             {@code auto}, ignoring case
+     * @return the profile with the specified name
+     * @throws IllegalArgumentException if there is no such profile
+     * @throws NullPointerException     if argument is {@code null}
+     */
+    public static LayoutProfile valueOf(String name) {
+        for (LayoutProfile profile : values()) {
+            if (profile.name.equalsIgnoreCase(Objects.requireNonNull(name))) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown layout profile: " + name);
+    }
+
+    /**
+     * Returns the predefined profiles.
+     *
+     * @return the predefined profiles, from cheapest to most expensive, followed
+     *         by {@link #AUTO}
+     */
+    public static LayoutProfile[] values() {
+        return new LayoutProfile[] { FAST, BALANCED, PRETTY, AUTO };
+    }
+
+    // Operations
+
+    /**
+     * Resolves this profile for a graph of the specified size. Only
+     * {@link #AUTO} depends on the size; every other profile returns itself.
+     *
+     * @param nodes the number of nodes in the graph
+     * @param edges the number of edges in the graph
+     * @return a profile that is not {@link #AUTO}
+     */
+    public LayoutProfile resolve(int nodes, int edges) {
+        if (this != AUTO) {
+            return this;
+        }
+        long size = (long) nodes + edges;
+        if (size <= AUTO_PRETTY_LIMIT) {
+            return PRETTY;
+        }
+        return size <= AUTO_BALANCED_LIMIT ? BALANCED : FAST;
+    }
+
+    /**
+     * Returns a copy of this profile that uses the specified layout engine.
+     *
+     * @param in a layout engine
+     * @return a profile that uses {@code in}
+     * @throws IllegalStateException if this is {@link #AUTO}
+     * @throws NullPointerException  if argument is {@code null}
+     */
+    public LayoutProfile withEngine(Engine in) {
+        checkConcrete();
+        return new LayoutProfile(name + "+" + in, Objects.requireNonNull(in), splines, concentrate, rankSep,
+                ratio, clusters);
+    }
+
+    /**
+     * Returns a copy of this profile that draws edges in the specified way.
+     * Edges are no longer concentrated.
+     *
+     * @param in the way to draw edges
+     * @return a profile that uses {@code in}
+     * @throws IllegalStateException if this is {@link #AUTO}
+     * @throws NullPointerException  if argument is {@code null}
+     */
+    public LayoutProfile withSplines(Splines in) {
+        checkConcrete();
+        return new LayoutProfile(name + "+" + in, engine, Objects.requireNonNull(in), false, rankSep, ratio,
+                clusters);
+    }
+
+    /**
+     * Returns a copy of this profile that does not draw package clusters.
+     *
+     * @return a profile without clusters
+     * @throws IllegalStateException if this is {@link #AUTO}
+     */
+    public LayoutProfile withoutClusters() {
+        checkConcrete();
+        return new LayoutProfile(name + "-clusters", engine, splines, concentrate, rankSep, ratio, false);
+    }
+
+    /**
+     * Returns progressively cheaper variants of this profile, to fall back on
+     * when it takes too long: polyline edges, then no clusters, then a
+     * force-directed engine with straight edges. The last step uses
+     * {@code sfdp} if a {@link NativeDot native dot} executable is available,
+     * and {@code neato} otherwise, as the Javascript engines do not include
+     * {@code sfdp}. Steps that would not change the profile are left out.
+     *
+     * @return this profile, followed by its cheaper variants
+     * @throws IllegalStateException if this is {@link #AUTO}
+     */
+    public List<LayoutProfile> fallbacks() {
+        checkConcrete();
+        List<LayoutProfile> out = new ArrayList<>(4);
+        LayoutProfile current = this;
+        out.add(current);
+        if (current.splines != Splines.POLYLINE && current.splines != Splines.LINE) {
+            current = current.withSplines(Splines.POLYLINE);
+            out.add(current);
+        }
+        if (current.clusters) {
+            current = current.withoutClusters();
+            out.add(current);
+        }
+        Engine last = scalableEngine();
+        if (current.layoutEngine() != last) {
+            current = current.withEngine(last).withSplines(Splines.LINE);
+            out.add(current);
+        }
+        return out;
+    }
+
+    /**
+     * Returns the cheapest engine for large graphs that the renderer supports.
+     */
+    private static Engine scalableEngine() {
+        return NativeDot.isAvailable() ? Engine.SFDP : Engine.NEATO;
+    }
+
+    /**
+     * Returns the engine that lays out graphs with this profile, which is
+     * {@code neato} in place of {@code sfdp} if the renderer lacks it.
+     */
+    private Engine layoutEngine() {
+        return engine == Engine.SFDP ? scalableEngine() : engine;
+    }
+
+    /**
+     * Writes the graph header for this profile.
+     *
+     * @param out the writer to use
+     * @throws IOException           if an I/O error occurs
+     * @throws IllegalStateException if this is {@link #AUTO}
+     */
+    void writeHeader(DotWriter out) throws IOException {
+        checkConcrete();
+        out.append("\tnode[shape=record,style=filled,fillcolor=gray95];\n");
+        if (concentrate) {
+            out.append("\tedge[concentrate=true];\n");
+        }
+        out.append("\tgraph[");
+        if (engine != Engine.DOT) {
+            out.append("layout = ").append(layoutEngine().toString()).append(", ");
+        }
+        out.append("splines = ").append(splines.toString());
+        if (rankSep != null) {
+            out.append(", ranksep = ").append(rankSep);
+        }
+        if (ratio != null) {
+            out.append(", ratio = ").append(ratio);
+        }
+        out.append(", color=blue];\n");
+        // splines = ortho, nodesep = 1 for straight lines, looks rough, let user
+        // change how lines are displayed
+        out.append("\trankdir = TB;\n").append(StringUtils.LF);
+    }
+
+    private void checkConcrete() {
+        if (this == AUTO) {
+            throw new IllegalStateException("AUTO must be resolved first");
+        }
+    }
+
+    // Getter Methods
+
+    /**
+     * Returns the name of this profile.
+     *
+     * @return the name of this profile
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the layout engine of this profile.
+     *
+     * @return the layout engine, or {@code null} for {@link #AUTO}
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Returns how this profile draws edges.
+     *
+     * @return the way edges are drawn, or {@code null} for {@link #AUTO}
+     */
+    public Splines getSplines() {
+        return splines;
+    }
+
+    /**
+     * Checks whether this profile draws package clusters.
+     *
+     * @return {@code true} if packages are drawn as clusters
+     */
+    public boolean getClusters() {
+        return clusters;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import analysis.language.Visibility;
+import analysis.language.actor.GenericClass;
+import analysis.language.actor.GenericDefinition;
+import analysis.language.component.Constructor;
+import analysis.language.component.Function;
+import analysis.language.component.InstanceVariable;
+
+/**
+ * Limits the number of members listed in each compartment of a node.
+ * <p>
+ * If a compartment has more members than allowed, the highest ranked ones are
+ * kept, in declaration order, followed by a line stating how many were left
+ * out. Members are ranked by visibility first ({@code public}, then
+ * {@code protected}, package-private and {@code private}) and kind second:
+ * instance variables before static ones, and constructors before abstract,
+ * instance and then static functions. Overloaded functions can also be folded
+ * into a single line.
+ *
+ * @since 2.1.0
+ */
+public final class MemberBudget {
+
+    /** A budget that lists every member. */
+    public static final MemberBudget UNLIMITED = new MemberBudget(0, false);
+
+    // Instance Variables
+
+    private final int maxMembers;
+    private final boolean foldOverloads;
+
+    // Constructors
+
+    /**
+     * Constructs a new {@code MemberBudget}.
+     *
+     * @param maxMembers    the maximum number of members listed per compartment,
+     *                      or zero for no limit
+     * @param foldOverloads whether to list overloaded functions as one line
+     * @throws IllegalArgumentException if {@code maxMembers} is negative
+     */
+    public MemberBudget(int maxMembers, boolean foldOverloads) {
+        if (maxMembers < 0) {
+            throw new IllegalArgumentException("Invalid member budget: " + maxMembers);
+        }
+        this.maxMembers = maxMembers;
+        this.foldOverloads = foldOverloads;
+    }
+
+    // Operations
+
+    /**
+     * Returns the lines of the instance variable compartment of a class.
+     *
+     * @param gc a class
+     * @return the DOT representation of each line
+     */
+    List<String> instanceVariableLines(GenericClass gc) {
+        List<Line> lines = new ArrayList<>(gc.getNumberInstanceVariables());
+        for (int i = 0; i < gc.getNumberInstanceVariables(); i++) {
+            InstanceVariable iv = gc.getInstanceVariableAt(i);
+            int rank = rank(iv.getVisibility()) * 2 + (iv.getStatic() ? 1 : 0);
+            lines.add(new Line(DotComponent.dotInstanceVariable(iv), rank, i));
+        }
+        return select(lines);
+    }
+
+    /**
+     * Returns the lines of the function compartment of a definition.
+     *
+     * @param gd a definition
+     * @return the DOT representation of each line
+     */
+    List<String> functionLines(GenericDefinition gd) {
+        List<Line> lines = new ArrayList<>(gd.getNumberFunctions());
+        if (!foldOverloads) {
+            for (int i = 0; i < gd.getNumberFunctions(); i++) {
+                Function f = gd.getFunctionAt(i);
+                lines.add(new Line(DotComponent.dotFunction(f), rank(f), i));
+            }
+            return select(lines);
+        }
+        Map<String, List<Function>> overloads = new LinkedHashMap<>();
+        for (int i = 0; i < gd.getNumberFunctions(); i++) {
+            Function f = gd.getFunctionAt(i);
+            overloads.computeIfAbsent(f.getName(), k -> new ArrayList<>()).add(f);
+        }
+        int order = 0;
+        for (List<Function> group : overloads.values()) {
+            int rank = Integer.MAX_VALUE;
+            for (Function f : group) {
+                rank = Math.min(rank, rank(f));
+            }
+            String text = DotComponent.dotFunction(group.get(0));
+            if (group.size() > 1) {
+                text += " (+" + (group.size() - 1) + (group.size() == 2 ? " overload)" : " overloads)");
+            }
+            lines.add(new Line(text, rank, order++));
+        }
+        return select(lines);
+    }
+
+    // Getter Methods
+
+    /**
+     * Returns the maximum number of members listed per compartment.
+     *
+     * @return the member limit, or zero if there is none
+     */
+    public int getMaxMembers() {
+        return maxMembers;
+    }
+
+    /**
+     * Checks whether overloaded functions are listed as one line.
+     *
+     * @return {@code true} if overloads are folded
+     */
+    public boolean getFoldOverloads() {
+        return foldOverloads;
+    }
+
+    // Mechanics
+
+    private List<String> select(List<Line> lines) {
+        List<String> out = new ArrayList<>(Math.min(lines.size(), maxMembers + 1));
+        if (maxMembers == 0 || lines.size() <= maxMembers) {
+            for (Line line : lines) {
+                out.add(line.text);
+            }
+            return out;
+        }
+        List<Line> kept = new ArrayList<>(lines);
+        kept.sort(Comparator.comparingInt((Line line) -> line.rank).thenComparingInt(line -> line.order));
+        kept = kept.subList(0, maxMembers);
+        kept.sort(Comparator.comparingInt(line -> line.order));
+        for (Line line : kept) {
+            out.add(line.text);
+        }
+        out.add("+ " + (lines.size() - maxMembers) + " more");
+        return out;
+    }
+
+    private static int rank(Function f) {
+        int kind;
+        if (f instanceof Constructor) {
+            kind = 0;
+        } else if (f.getAbstract()) {
+            kind = 1;
+        } else if (!f.getStatic()) {
+            kind = 2;
+        } else {
+            kind = 3;
+        }
+        return rank(f.getVisibility()) * 4 + kind;
+    }
+
+    private static int rank(Visibility vis) {
+        switch (vis) {
+            case PUBLIC:
+                return 0;
+            case PROTECTED:
+                return 1;
+            case PACKAGE:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    /** A line of a compartment, with its rank and declaration order. */
+    private static final class Line {
+        final String text;
+        final int rank;
+        final int order;
+
+        Line(String text, int rank, int order) {
+            this.text = text;
+            this.rank = rank;
+            this.order = order;
+        }
+    }
+
+}
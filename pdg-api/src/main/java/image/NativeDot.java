@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.function.IOConsumer;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import guru.nidi.graphviz.engine.Format;
+
+/**
+ * Renders DOT graphs with a native Graphviz {@code dot} executable, streaming
+ * the graph into the standard input of the process instead of materializing
+ * it as a string.
+ *
+ * @since 2.1.0
+ */
+public final class NativeDot {
+
+    /** Maximum time to wait for a single render, matching the GUI engine. */
+    static final long TIMEOUT_MINUTES = 10;
+
+    private static Logger logger = LogManager.getLogger();
+
+    /** Cached location of the executable; {@code null} until looked up. */
+    private static File executable;
+    /** Whether the lookup for {@link #executable} has taken place. */
+    private static boolean located;
+    /** Cached version of the executable; {@code null} until queried. */
+    private static String version;
+
+    /** Private constructor. */
+    private NativeDot() {
+    }
+
+    /**
+     * Finds the {@code dot} executable on the {@code PATH}. The result of the
+     * lookup is cached.
+     *
+     * @return the {@code dot} executable, or {@code null} if none is available
+     */
+    public static synchronized File locate() {
+        if (!located) {
+            String name = SystemUtils.IS_OS_WINDOWS ? "dot.exe" : "dot";
+            String path = Objects.requireNonNullElse(System.getenv("PATH"), StringUtils.EMPTY);
+            for (String dir : path.split(File.pathSeparator)) {
+                File candidate = new File(dir, name);
+                if (!dir.isEmpty() && candidate.isFile() && candidate.canExecute()) {
+                    executable = candidate;
+                    break;
+                }
+            }
+            located = true;
+            logger.debug("Native dot executable: {}", executable);
+        }
+        return executable;
+    }
+
+    /**
+     * Checks whether a native {@code dot} executable is available.
+     *
+     * @return {@code true} if {@link #locate()} finds an executable
+     */
+    public static boolean isAvailable() {
+        return locate() != null;
+    }
+
+    /**
+     * Returns the version of the {@code dot} executable, as reported by
+     * {@code dot -V}. The result is cached.
+     *
+     * @return the version, or {@code "unknown"} if it cannot be determined
+     */
+    public static synchronized String version() {
+        if (version == null) {
+            version = queryVersion();
+            logger.debug("Native dot version: {}", version);
+        }
+        return version;
+    }
+
+    private static String queryVersion() {
+        File dot = locate();
+        if (dot != null) {
+            try {
+                Process process = new ProcessBuilder(dot.getAbsolutePath(), "-V")
+                        .redirectErrorStream(true)
+                        .start();
+                process.getOutputStream().close();
+                String output = new String(process.getInputStream().readAllBytes(), Charset.defaultCharset());
+                if (process.waitFor(1, TimeUnit.MINUTES) && process.exitValue() == 0 && !output.isBlank()) {
+                    return output.trim();
+                }
+                process.destroyForcibly();
+            } catch (IOException ioe) {
+                logger.debug("Unable to query the dot version", ioe);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * Returns the name that {@code dot -T} uses for the specified format.
+     *
+     * @param format an output format
+     * @return the corresponding {@code -T} argument
+     */
+    static String outputType(Format format) {
+        switch (format) {
+            case PLAIN:
+                return "plain";
+            case SVG_STANDALONE:
+                return "svg";
+            default:
+                return format.fileExtension;
+        }
+    }
+
+    /**
+     * Renders a graph to a file.
+     *
+     * @param content writes the graph to the supplied writer
+     * @param format  the output format
+     * @param out     the file to write
+     * @param args    additional command line arguments for {@code dot}
+     * @throws IOException if no {@code dot} executable is available, if writing
+     *                     the graph fails, or if {@code dot} fails or times out
+     */
+    public static void render(IOConsumer<DotWriter> content, Format format, File out, String... args)
+            throws IOException {
+        render(content, format, out, TIMEOUT_MINUTES, TimeUnit.MINUTES, args);
+    }
+
+    /**
+     * Renders a graph to a file, giving up after the specified time. If the
+     * render times out, the {@code dot} process is killed.
+     *
+     * @param content writes the graph to the supplied writer
+     * @param format  the output format
+     * @param out     the file to write
+     * @param timeout the maximum time to wait for {@code dot}
+     * @param unit    the unit of {@code timeout}
+     * @param args    additional command line arguments for {@code dot}
+     * @throws IOException if no {@code dot} executable is available, if writing
+     *                     the graph fails, or if {@code dot} fails or times out
+     */
+    public static void render(IOConsumer<DotWriter> content, Format format, File out, long timeout, TimeUnit unit,
+            String... args) throws IOException {
+        render(content, Map.of(format, out), timeout, unit, args);
+    }
+
+    /**
+     * Renders a graph to several files with a single {@code dot} process. The
+     * graph is laid out once, and each format is produced from that layout.
+     *
+     * @param content writes the graph to the supplied writer
+     * @param outputs the file to write for each output format
+     * @param args    additional command line arguments for {@code dot}
+     * @throws IllegalArgumentException if {@code outputs} is empty
+     * @throws IOException              if no {@code dot} executable is
+     *                                  available, if writing the graph fails,
+     *                                  or if {@code dot} fails or times out
+     */
+    public static void render(IOConsumer<DotWriter> content, Map<Format, File> outputs, String... args)
+            throws IOException {
+        render(content, outputs, TIMEOUT_MINUTES, TimeUnit.MINUTES, args);
+    }
+
+    /**
+     * Renders a graph to several files with a single {@code dot} process,
+     * giving up after the specified time. If the render times out, the
+     * {@code dot} process is killed.
+     *
+     * @param content writes the graph to the supplied writer
+     * @param outputs the file to write for each output format
+     * @param timeout the maximum time to wait for {@code dot}
+     * @param unit    the unit of {@code timeout}
+     * @param args    additional command line arguments for {@code dot}
+     * @throws IllegalArgumentException if {@code outputs} is empty
+     * @throws IOException              if no {@code dot} executable is
+     *                                  available, if writing the graph fails,
+     *                                  or if {@code dot} fails or times out
+     */
+    public static void render(IOConsumer<DotWriter> content, Map<Format, File> outputs, long timeout,
+            TimeUnit unit, String... args) throws IOException {
+        if (outputs.isEmpty()) {
+            throw new IllegalArgumentException("No output formats");
+        }
+        File dot = locate();
+        if (dot == null) {
+            throw new IOException("No native dot executable available");
+        }
+        List<String> command = new ArrayList<>();
+        command.add(dot.getAbsolutePath());
+        for (Map.Entry<Format, File> output : outputs.entrySet()) {
+            // Each -o applies to the -T before it
+            command.add("-T" + outputType(output.getKey()));
+            command.add("-o" + output.getValue().getAbsolutePath());
+        }
+        for (String arg : args) {
+            command.add(arg);
+        }
+        File log = File.createTempFile("dot", ".log");
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(log)
+                    .start();
+            try (DotWriter writer = new DotWriter(process.getOutputStream())) {
+                content.accept(writer);
+            } catch (IOException ioe) {
+                process.destroyForcibly();
+                throw ioe;
+            }
+            if (!process.waitFor(timeout, unit)) {
+                process.destroyForcibly();
+                throw new IOException(
+                        "dot timed out after " + timeout + " " + unit.toString().toLowerCase(Locale.ROOT));
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("dot exited with " + process.exitValue() + ": "
+                        + new String(Files.readAllBytes(log.toPath()), Charset.defaultCharset()).trim());
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for dot", ie);
+        } finally {
+            Files.deleteIfExists(log.toPath());
+        }
+    }
+
+}
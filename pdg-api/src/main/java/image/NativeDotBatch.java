@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.function.IOConsumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import guru.nidi.graphviz.engine.Format;
+
+/**
+ * Renders many DOT graphs with a few long-lived native {@code dot} processes.
+ * <p>
+ * Each worker starts one {@code dot} process and streams graphs into it one
+ * after another, taking the next graph from a shared queue. {@code dot} writes
+ * the renders to its standard output in the same order, and they are split
+ * apart again at the end marker of the output format, so a process is started
+ * once per worker rather than once per graph. If a process fails or produces
+ * an unexpected number of renders, none of its renders are used, and its
+ * graphs are rendered one process each with {@link NativeDot} instead.
+ *
+ * @since 2.1.0
+ */
+public final class NativeDotBatch {
+
+    /** Time between checks whether a {@code dot} process still makes progress. */
+    private static final long WATCHDOG_INTERVAL_MILLIS = 1000;
+
+    private static Logger logger = LogManager.getLogger();
+
+    /** Private constructor. */
+    private NativeDotBatch() {
+    }
+
+    /**
+     * Checks whether renders in the specified format can be split apart, and
+     * can therefore be batched.
+     *
+     * @param format an output format
+     * @return {@code true} if the format can be batched
+     */
+    public static boolean supports(Format format) {
+        return endMarker(format) != null;
+    }
+
+    /**
+     * Renders several graphs.
+     *
+     * @param graphs  the graph written by each function is rendered to the
+     *                corresponding file
+     * @param format  the output format
+     * @param workers the maximum number of {@code dot} processes to run at once
+     * @return the files that could not be rendered, with the reason, in the
+     *         order of {@code graphs}
+     * @throws IllegalArgumentException if {@code format} is not supported, or
+     *                                  if {@code workers} is not positive
+     * @throws IOException              if no {@code dot} executable is available
+     */
+    public static Map<File, IOException> render(Map<File, IOConsumer<DotWriter>> graphs, Format format,
+            int workers) throws IOException {
+        if (!supports(format)) {
+            throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("Invalid worker count: " + workers);
+        }
+        if (!NativeDot.isAvailable()) {
+            throw new IOException("No native dot executable available");
+        }
+        Queue<Map.Entry<File, IOConsumer<DotWriter>>> queue = new ConcurrentLinkedQueue<>(graphs.entrySet());
+        Set<File> retry = Collections.synchronizedSet(new HashSet<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < Math.min(workers, graphs.size()); i++) {
+            Thread t = new Thread(() -> {
+                for (Map.Entry<File, IOConsumer<DotWriter>> graph : runWorker(queue, format)) {
+                    retry.add(graph.getKey());
+                }
+            }, "dot-batch-" + i);
+            t.start();
+            threads.add(t);
+        }
+        try {
+            for (Thread t : threads) {
+                t.join();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            queue.clear();
+            throw new IOException("Interrupted while waiting for dot", ie);
+        }
+
+        // Left over if every worker failed
+        for (Map.Entry<File, IOConsumer<DotWriter>> graph : queue) {
+            retry.add(graph.getKey());
+        }
+        Map<File, IOException> failures = new LinkedHashMap<>();
+        if (!retry.isEmpty()) {
+            logger.warn("Rendering " + retry.size() + " graphs one at a time");
+        }
+        for (Map.Entry<File, IOConsumer<DotWriter>> graph : graphs.entrySet()) {
+            if (!retry.contains(graph.getKey())) {
+                continue;
+            }
+            try {
+                NativeDot.render(graph.getValue(), format, graph.getKey());
+            } catch (IOException ioe) {
+                failures.put(graph.getKey(), ioe);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Streams graphs from the queue through one {@code dot} process until the
+     * queue is empty.
+     *
+     * @return the graphs that were not rendered
+     */
+    private static List<Map.Entry<File, IOConsumer<DotWriter>>> runWorker(
+            Queue<Map.Entry<File, IOConsumer<DotWriter>>> queue, Format format) {
+        List<Map.Entry<File, IOConsumer<DotWriter>>> sent = Collections.synchronizedList(new ArrayList<>());
+        List<File> renders = new ArrayList<>();
+        File log = null;
+        Process process = null;
+        Thread writer = null;
+        try {
+            log = File.createTempFile("dot", ".log");
+            process = new ProcessBuilder(NativeDot.locate().getAbsolutePath(), "-T" + NativeDot.outputType(format))
+                    .redirectError(log)
+                    .start();
+            Process dot = process;
+            AtomicLong progress = new AtomicLong(System.nanoTime());
+            Thread watchdog = new Thread(() -> {
+                try {
+                    while (dot.isAlive()) {
+                        if (System.nanoTime() - progress.get() > TimeUnit.MINUTES.toNanos(NativeDot.TIMEOUT_MINUTES)) {
+                            logger.warn("dot made no progress for " + NativeDot.TIMEOUT_MINUTES + " minutes");
+                            dot.destroyForcibly();
+                            return;
+                        }
+                        Thread.sleep(WATCHDOG_INTERVAL_MILLIS);
+                    }
+                } catch (InterruptedException ie) {
+                    // Batch finished
+                }
+            }, Thread.currentThread().getName() + "-watchdog");
+            watchdog.setDaemon(true);
+            watchdog.start();
+            IOException[] writeError = new IOException[1];
+            writer = new Thread(() -> {
+                try (DotWriter out = new DotWriter(dot.getOutputStream())) {
+                    Map.Entry<File, IOConsumer<DotWriter>> graph;
+                    while ((graph = queue.poll()) != null) {
+                        sent.add(graph);
+                        graph.getValue().accept(out);
+                        out.append("\n").flush();
+                    }
+                } catch (IOException ioe) {
+                    writeError[0] = ioe;
+                }
+            }, Thread.currentThread().getName() + "-writer");
+            writer.start();
+
+            byte[] marker = endMarker(format);
+            try (InputStream in = new BufferedInputStream(process.getInputStream())) {
+                while (true) {
+                    File tmp = File.createTempFile("render", null);
+                    renders.add(tmp);
+                    if (!split(in, tmp, marker)) {
+                        renders.remove(renders.size() - 1);
+                        Files.deleteIfExists(tmp.toPath());
+                        break;
+                    }
+                    progress.set(System.nanoTime());
+                }
+            }
+            writer.join();
+            process.waitFor();
+            watchdog.interrupt();
+            if (writeError[0] != null) {
+                throw writeError[0];
+            }
+            if (process.exitValue() != 0 || renders.size() != sent.size()) {
+                throw new IOException("dot exited with " + process.exitValue() + " after " + renders.size() + " of "
+                        + sent.size() + " graphs: "
+                        + new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8).trim());
+            }
+            for (int i = 0; i < renders.size(); i++) {
+                move(renders.get(i), sent.get(i).getKey());
+            }
+            return Collections.emptyList();
+        } catch (IOException ioe) {
+            logger.warn("Batched dot render failed", ioe);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (process != null) {
+                process.destroyForcibly();
+            }
+            joinQuietly(writer);
+            for (File render : renders) {
+                FileUtils.deleteQuietly(render);
+            }
+            FileUtils.deleteQuietly(log);
+        }
+        // Anything still queued is picked up by the other workers, or retried
+        return new ArrayList<>(sent);
+    }
+
+    /** Waits for a thread to finish, even if interrupted. */
+    private static void joinQuietly(Thread t) {
+        if (t == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (t.isAlive()) {
+            try {
+                t.join();
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Copies one render from the standard output of {@code dot}, up to and
+     * including its end marker.
+     *
+     * @return {@code true} if a complete render was copied, {@code false} if
+     *         the output ended first
+     */
+    private static boolean split(InputStream in, File out, byte[] marker) throws IOException {
+        byte last = marker[marker.length - 1];
+        byte[] tail = new byte[marker.length];
+        long count = 0;
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(out.toPath()))) {
+            int b;
+            while ((b = in.read()) >= 0) {
+                os.write(b);
+                tail[(int) (count++ % tail.length)] = (byte) b;
+                if ((byte) b == last && count >= marker.length && endsWith(tail, count, marker)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Checks whether the bytes in the ring buffer end with the marker. */
+    private static boolean endsWith(byte[] tail, long count, byte[] marker) {
+        for (int i = 0; i < marker.length; i++) {
+            if (tail[(int) ((count - marker.length + i) % tail.length)] != marker[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the bytes that end a render in the specified format.
+     *
+     * @return the end marker, or {@code null} if renders cannot be split
+     */
+    private static byte[] endMarker(Format format) {
+        switch (format) {
+            case PNG:
+                // Empty IEND chunk, including its CRC
+                return new byte[] { 0, 0, 0, 0, 'I', 'E', 'N', 'D', (byte) 0xAE, 0x42, 0x60, (byte) 0x82 };
+            case SVG:
+            case SVG_STANDALONE:
+            case IMAGE_SVG:
+                return "</svg>\n".getBytes(StandardCharsets.US_ASCII);
+            case DOT:
+            case XDOT:
+            case JSON:
+            case JSON0:
+                // Nested braces are indented
+                return "\n}\n".getBytes(StandardCharsets.US_ASCII);
+            case PLAIN:
+            case PLAIN_EXT:
+                return "\nstop\n".getBytes(StandardCharsets.US_ASCII);
+            case PS:
+            case PS2:
+                return "%%EOF\n".getBytes(StandardCharsets.US_ASCII);
+            default:
+                return null;
+        }
+    }
+
+    private static void move(File from, File to) throws IOException {
+        File dir = to.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+            Files.createDirectories(dir.toPath());
+        }
+        Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import guru.nidi.graphviz.engine.Format;
+
+/**
+ * An on-disk cache of rendered images, addressed by the content that produced
+ * them.
+ * <p>
+ * Entries are keyed by the digest of the DOT text together with the output
+ * format, the rendering engine and any layout options (see
+ * {@link #key(String, Format, String, String...)}), so identical renders are
+ * shared by every run that uses the same cache directory, including runs by
+ * different users. For them to share it, the directory must be writable by
+ * each of them: a directory that the cache creates is made group-writable and,
+ * where supported, setgid, so that it can be shared by the members of its
+ * group, while a directory created otherwise must be given such permissions
+ * by whoever creates it. Entries are written to a temporary file and atomically
+ * moved into place, so a reader never observes a partial entry. When the
+ * total size of the cache exceeds its budget, the least recently used entries
+ * are evicted.
+ * <p>
+ * The cache is best-effort: I/O errors are logged and treated as misses.
+ *
+ * @since 2.1.0
+ */
+public final class RenderCache {
+
+    /** Prefix of files that are still being written. */
+    private static final String TEMP_PREFIX = ".tmp-";
+    /** Age after which an abandoned temporary file is removed. */
+    private static final long TEMP_EXPIRY_MILLIS = TimeUnit.HOURS.toMillis(1);
+    /**
+     * Number of stores after which the cache directory is listed again, to
+     * account for entries stored or evicted by other processes.
+     */
+    private static final int RESCAN_INTERVAL = 256;
+    /** Mode of a created cache directory: {@code rwxrwsr-x}. */
+    private static final int SHARED_DIRECTORY_MODE = 02775;
+
+    private static Logger logger = LogManager.getLogger();
+
+    // Instance Variables
+
+    /** The cache directory. */
+    private final Path dir;
+    /** Maximum total size of all entries, in bytes. */
+    private final long maxBytes;
+    /** Total size of all entries as of the last listing plus later stores, or -1 if not listed yet. */
+    private long estimatedBytes = -1;
+    /** Number of stores since the cache directory was last listed. */
+    private int storesSinceScan;
+
+    // Constructors
+
+    /**
+     * Constructs a new {@code RenderCache}. The directory is created when the
+     * first entry is stored.
+     *
+     * @param dir      the cache directory
+     * @param maxBytes the maximum total size of all entries, in bytes
+     * @throws NullPointerException     if {@code dir} is {@code null}
+     * @throws IllegalArgumentException if {@code maxBytes} is negative
+     */
+    public RenderCache(File dir, long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Negative size: " + maxBytes);
+        }
+        this.dir = Objects.requireNonNull(dir).toPath();
+        this.maxBytes = maxBytes;
+    }
+
+    // Operations
+
+    /**
+     * Forms the key of a render.
+     *
+     * @param dotDigest the digest of the DOT text, as computed by
+     *                  {@link DotDigest}
+     * @param format    the output format
+     * @param engine    the name and version of the engine that renders the
+     *                  graph
+     * @param options   any options that affect the layout which are not part of
+     *                  the DOT text
+     * @return the key of the render
+     */
+    public static String key(String dotDigest, Format format, String engine, String... options) {
+        StringBuilder sb = new StringBuilder(dotDigest).append('\n').append(format.name()).append('\n')
+                .append(engine);
+        for (String option : options) {
+            sb.append('\n').append(option);
+        }
+        return DotDigest.of(sb.toString()) + FilenameUtils.EXTENSION_SEPARATOR + format.fileExtension;
+    }
+
+    /**
+     * Copies a cached render to the specified file, replacing it.
+     *
+     * @param key the key of the render
+     * @param out the file to write
+     * @return {@code true} if the render was cached and has been copied
+     */
+    public boolean fetch(String key, File out) {
+        Path entry = dir.resolve(key);
+        if (!Files.isRegularFile(entry)) {
+            return false;
+        }
+        try {
+            Files.copy(entry, out.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException nsfe) {
+            // Evicted by someone else in the meantime
+            return false;
+        } catch (IOException ioe) {
+            logger.warn("Unable to read cached render " + entry, ioe);
+            return false;
+        }
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ioe) {
+            // Usually an entry owned by another user; it just ages sooner
+            logger.debug("Unable to touch " + entry, ioe);
+        }
+        return true;
+    }
+
+    /**
+     * Stores a copy of a render, then evicts the least recently used entries
+     * if the cache no longer fits its budget. The total size is tracked as
+     * entries are stored, so the cache directory is only listed when the
+     * budget is exceeded, on the first store, and every
+     * {@value #RESCAN_INTERVAL} stores.
+     *
+     * @param key      the key of the render
+     * @param rendered the rendered image
+     */
+    public void store(String key, File rendered) {
+        Path tmp = null;
+        long added;
+        try {
+            createDirectory();
+            tmp = Files.createTempFile(dir, TEMP_PREFIX, null);
+            Files.copy(rendered.toPath(), tmp, StandardCopyOption.REPLACE_EXISTING);
+            share(tmp);
+            added = Files.size(tmp);
+            moveAtomically(tmp, dir.resolve(key));
+        } catch (IOException ioe) {
+            logger.warn("Unable to cache render " + rendered, ioe);
+            return;
+        } finally {
+            deleteQuietly(tmp);
+        }
+        if (needsScan(added)) {
+            evict();
+        }
+    }
+
+    /** Accounts for a stored entry, and checks whether to list the cache. */
+    private synchronized boolean needsScan(long added) {
+        if (estimatedBytes < 0) {
+            return true;
+        }
+        // Replaced entries are counted twice until the next listing
+        estimatedBytes += added;
+        return estimatedBytes > maxBytes || ++storesSinceScan >= RESCAN_INTERVAL;
+    }
+
+    /**
+     * Evicts the least recently used entries until the total size of the cache
+     * is within its budget. Abandoned temporary files are removed as well.
+     */
+    public synchronized void evict() {
+        List<Path> entries = new ArrayList<>();
+        List<BasicFileAttributes> attributes = new ArrayList<>();
+        long total = 0;
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                } catch (NoSuchFileException nsfe) {
+                    continue;
+                }
+                if (!attrs.isRegularFile()) {
+                    continue;
+                }
+                if (p.getFileName().toString().startsWith(TEMP_PREFIX)) {
+                    if (now - attrs.lastModifiedTime().toMillis() > TEMP_EXPIRY_MILLIS) {
+                        deleteQuietly(p);
+                    }
+                    continue;
+                }
+                entries.add(p);
+                attributes.add(attrs);
+                total += attrs.size();
+            }
+        } catch (NoSuchFileException nsfe) {
+            return;
+        } catch (IOException ioe) {
+            logger.warn("Unable to list render cache " + dir, ioe);
+            return;
+        }
+        storesSinceScan = 0;
+        if (total <= maxBytes) {
+            estimatedBytes = total;
+            return;
+        }
+        List<Integer> order = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparing(i -> attributes.get(i).lastModifiedTime()));
+        for (int i : order) {
+            if (total <= maxBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(entries.get(i));
+                total -= attributes.get(i).size();
+            } catch (IOException ioe) {
+                logger.debug("Unable to evict " + entries.get(i), ioe);
+            }
+        }
+        estimatedBytes = total;
+    }
+
+    // Getter Methods
+
+    /**
+     * Returns the cache directory.
+     *
+     * @return the cache directory
+     */
+    public File getDirectory() {
+        return dir.toFile();
+    }
+
+    /**
+     * Returns the maximum total size of all entries.
+     *
+     * @return the size budget, in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    // Mechanics
+
+    private static void moveAtomically(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException amnse) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Creates the cache directory if it does not exist yet, letting the other
+     * members of its group store entries in it. Entries then belong to the
+     * group of the directory where setgid directories are supported.
+     */
+    private void createDirectory() throws IOException {
+        if (Files.isDirectory(dir)) {
+            return;
+        }
+        Files.createDirectories(dir);
+        try {
+            Files.setAttribute(dir, "unix:mode", SHARED_DIRECTORY_MODE);
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            try {
+                Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwxrwxr-x"));
+            } catch (UnsupportedOperationException | IOException e2) {
+                // Not a POSIX file system; the default permissions apply
+            }
+        }
+    }
+
+    /** Lets other users of a shared cache directory read and replace an entry. */
+    private static void share(Path p) {
+        try {
+            Files.setPosixFilePermissions(p, PosixFilePermissions.fromString("rw-rw-r--"));
+        } catch (UnsupportedOperationException | IOException e) {
+            // Not a POSIX file system; the default permissions apply
+        }
+    }
+
+    private static void deleteQuietly(Path p) {
+        if (p == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException ioe) {
+            logger.debug("Unable to delete " + p, ioe);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Records which graph each image was rendered from, in a single manifest per
+ * image directory.
+ * <p>
+ * Each entry holds the {@link RenderCache#key(String, guru.nidi.graphviz.engine.Format, String, String...)
+ * cache key} of the render together with the size and modification time of
+ * the image, so an image that was changed or only partially rewritten since is
+ * never mistaken for an up-to-date one. Changes are kept in memory until
+ * {@link #saveAll()} is called.
+ *
+ * @since 2.1.0
+ */
+final class RenderStamps {
+
+    /** Name of the manifest in each image directory. */
+    static final String MANIFEST_NAME = ".pdg-renders";
+
+    private static Logger logger = LogManager.getLogger();
+
+    /** Loaded manifests, by image directory. */
+    private static final Map<File, Properties> manifests = new HashMap<>();
+    /** Image directories whose manifest has unsaved changes. */
+    private static final Set<File> dirty = new HashSet<>();
+
+    /** Private constructor. */
+    private RenderStamps() {
+    }
+
+    /**
+     * Checks whether an image exists, is unchanged since it was recorded, and
+     * was rendered with the specified key. If not, its entry is removed.
+     *
+     * @param image the image file
+     * @param key   the cache key of the render
+     * @return {@code true} if the image is up to date
+     */
+    static synchronized boolean matches(File image, String key) {
+        Properties manifest = manifest(image);
+        String entry = manifest.getProperty(image.getName());
+        if (entry != null && image.isFile() && entry.equals(entry(image, key))) {
+            return true;
+        }
+        if (entry != null) {
+            manifest.remove(image.getName());
+            dirty.add(directory(image));
+        }
+        return false;
+    }
+
+    /**
+     * Records that an image was just rendered with the specified key.
+     *
+     * @param image the image file
+     * @param key   the cache key of the render
+     */
+    static synchronized void record(File image, String key) {
+        manifest(image).setProperty(image.getName(), entry(image, key));
+        dirty.add(directory(image));
+    }
+
+    /**
+     * Writes every manifest with unsaved changes.
+     */
+    static synchronized void saveAll() {
+        for (File dir : dirty) {
+            File file = new File(dir, MANIFEST_NAME);
+            try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                manifests.get(dir).store(out, "Renders of the images in this directory");
+            } catch (IOException ioe) {
+                logger.warn("Unable to write " + file, ioe);
+            }
+        }
+        dirty.clear();
+    }
+
+    // Mechanics
+
+    private static String entry(File image, String key) {
+        return key + ' ' + image.length() + ' ' + image.lastModified();
+    }
+
+    private static File directory(File image) {
+        return image.getAbsoluteFile().getParentFile();
+    }
+
+    private static Properties manifest(File image) {
+        return manifests.computeIfAbsent(directory(image), dir -> {
+            Properties manifest = new Properties();
+            File file = new File(dir, MANIFEST_NAME);
+            if (file.isFile()) {
+                try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    manifest.load(in);
+                } catch (IOException ioe) {
+                    logger.warn("Unable to read " + file, ioe);
+                }
+            }
+            return manifest;
+        });
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.function.IOConsumer;
+
+/**
+ * DOT text that has been generated once into a temporary file and hashed on
+ * the way. Whether a render can be skipped is decided from the digest, and
+ * the graph is only replayed from the file if it cannot, so the graph is
+ * never generated twice nor held in memory.
+ *
+ * @since 2.1.0
+ */
+final class SpooledDot implements Closeable {
+
+    /** Number of characters copied at a time when replaying. */
+    private static final int CHUNK_SIZE = 8192;
+
+    // Instance Variables
+
+    private final File file;
+    private final String digest;
+
+    // Constructors
+
+    private SpooledDot(File file, String digest) {
+        this.file = file;
+        this.digest = digest;
+    }
+
+    /**
+     * Generates the DOT text written by the specified function.
+     *
+     * @param content writes the graph to the supplied writer
+     * @return the spooled text
+     * @throws IOException if {@code content} throws it, or if the temporary
+     *                     file cannot be written
+     */
+    static SpooledDot of(IOConsumer<DotWriter> content) throws IOException {
+        File file = File.createTempFile("graph", ".dot");
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            return new SpooledDot(file, DotDigest.of(content, out));
+        } catch (IOException | RuntimeException e) {
+            FileUtils.deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    // Getter Methods
+
+    /**
+     * Returns the digest of the DOT text.
+     *
+     * @return the digest, as computed by {@link DotDigest}
+     */
+    String getDigest() {
+        return digest;
+    }
+
+    /**
+     * Returns a function that writes the DOT text again.
+     *
+     * @return a function that replays the spooled text
+     */
+    IOConsumer<DotWriter> content() {
+        return w -> {
+            try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                char[] chunk = new char[CHUNK_SIZE];
+                int n;
+                while ((n = in.read(chunk)) >= 0) {
+                    w.append(CharBuffer.wrap(chunk, 0, n));
+                }
+            }
+        };
+    }
+
+    /**
+     * Deletes the temporary file.
+     */
+    @Override
+    public void close() {
+        FileUtils.deleteQuietly(file);
+    }
+
+}
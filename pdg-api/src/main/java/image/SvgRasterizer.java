@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts an SVG image into a PNG image.
+ *
+ * @since 2.1.0
+ * @see ConvertVisual#assignSvgRasterizer(SvgRasterizer)
+ */
+@FunctionalInterface
+public interface SvgRasterizer {
+
+    /**
+     * Rasterizes an SVG image.
+     *
+     * @param svg the SVG image to read
+     * @param png the PNG image to write
+     * @throws IOException if the SVG image cannot be read, or if writing the
+     *                     PNG image fails
+     */
+    void rasterize(File svg, File png) throws IOException;
+
+}
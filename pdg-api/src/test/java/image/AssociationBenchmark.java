@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) Sung Ho Yoon. All rights reserved.
+ * Licensed under the MIT license. See LICENSE-mit file in the project root
+ * for details.
+ */
+
+package image;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import analysis.language.actor.GenericClass;
+import analysis.language.actor.GenericDefinition;
+import analysis.process.Explore;
+
+/**
+ * Measures association storage on a dense dependency graph of
+ * {@value #DEFINITIONS} definitions, comparing the hashed storage of
+ * {@link GenericDefinition} with the list it replaced. Run with
+ * {@code gradle benchmark}; the timings are printed.
+ */
+@Tag("benchmark")
+class AssociationBenchmark {
+
+    private static final int PACKAGES = 400;
+    private static final int PER_PACKAGE = 25;
+    private static final int DEFINITIONS = PACKAGES * PER_PACKAGE;
+    /** Dependencies on the same class of nearby packages, which are mutual. */
+    private static final int MUTUAL = 10;
+    /** Dependencies on random classes of other packages. */
+    private static final int RANDOM = 10;
+    /** Dependencies within the package. */
+    private static final int NEIGHBORS = 4;
+    private static final int ROUNDS = 5;
+
+    @TempDir
+    File project;
+
+    @Test
+    void storage() {
+        int[][] dependencies = dependencies();
+        GenericDefinition[] definitions = definitions();
+
+        long added = Long.MAX_VALUE;
+        long addedBefore = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            GenericDefinition[] after = definitions();
+            long start = System.nanoTime();
+            for (int i = 0; i < DEFINITIONS; i++) {
+                for (int j : dependencies[i]) {
+                    after[i].addAssociation(after[j]);
+                }
+            }
+            added = Math.min(added, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            linear(definitions, dependencies);
+            addedBefore = Math.min(addedBefore, System.nanoTime() - start);
+        }
+
+        LinearAssociates[] before = linear(definitions, dependencies);
+        for (int i = 0; i < DEFINITIONS; i++) {
+            for (int j : dependencies[i]) {
+                definitions[i].addAssociation(definitions[j]);
+            }
+        }
+        int[] mutual = new int[2];
+        long checked = best(() -> {
+            mutual[0] = 0;
+            for (int i = 0; i < DEFINITIONS; i++) {
+                for (int j : dependencies[i]) {
+                    if (definitions[j].hasAssociate(definitions[i])) {
+                        mutual[0]++;
+                    }
+                }
+            }
+        });
+        long checkedBefore = best(() -> {
+            mutual[1] = 0;
+            for (int i = 0; i < DEFINITIONS; i++) {
+                for (int j : dependencies[i]) {
+                    if (before[j].contains(definitions[i])) {
+                        mutual[1]++;
+                    }
+                }
+            }
+        });
+        assertEquals(mutual[1], mutual[0]);
+
+        report("addAssociation", addedBefore, added);
+        report("hasAssociate", checkedBefore, checked);
+    }
+
+    @Test
+    void dotAssociations() throws IOException {
+        int[][] dependencies = dependencies();
+        writeProject(dependencies);
+        Explore explore = new Explore(project);
+        explore.run();
+        assertEquals(DEFINITIONS, explore.getNumberDefinitions());
+        List<GenericDefinition> definitions = explore.getDefinitions();
+
+        LinearAssociates[] before = new LinearAssociates[DEFINITIONS];
+        for (GenericDefinition gd : definitions) {
+            before[gd.getId()] = new LinearAssociates();
+            for (GenericDefinition c : gd.getClassAssociates()) {
+                before[gd.getId()].add(c);
+            }
+        }
+
+        StringBuilder[] out = new StringBuilder[2];
+        long written = best(() -> {
+            out[0] = new StringBuilder();
+            for (GenericDefinition gd : definitions) {
+                int mV = gd.getId();
+                for (GenericDefinition c : gd.getClassAssociates()) {
+                    int yV = c.getId();
+                    boolean mutual = c.hasAssociate(gd);
+                    if (!mutual || mV <= yV) {
+                        edge(out[0], mV, yV, mutual);
+                    }
+                }
+            }
+        });
+        long writtenBefore = best(() -> {
+            out[1] = new StringBuilder();
+            for (GenericDefinition gd : definitions) {
+                int mV = gd.getId();
+                for (GenericDefinition c : before[mV].associates) {
+                    int yV = c.getId();
+                    if (!before[yV].contains(gd) || mV <= yV) {
+                        edge(out[1], mV, yV, before[yV].contains(gd));
+                    }
+                }
+            }
+        });
+        assertEquals(out[1].toString(), out[0].toString());
+
+        DotProcess.setProject(explore);
+        long diagram = best(() -> {
+            try {
+                DotProcess.writeDot(new StringBuilder());
+            } catch (IOException ioe) {
+                throw new AssertionError(ioe);
+            }
+        });
+
+        report("DOT associations", writtenBefore, written);
+        System.out.printf("%-20s %10s %10.1f ms%n", "whole diagram", "", diagram / 1e6);
+    }
+
+    // Mechanics
+
+    /**
+     * Returns the dependencies of each definition, by index. Definition
+     * {@code i} is class {@code i % PER_PACKAGE} of package
+     * {@code i / PER_PACKAGE}.
+     */
+    private static int[][] dependencies() {
+        Random random = new Random(29);
+        int[][] dependencies = new int[DEFINITIONS][];
+        for (int i = 0; i < DEFINITIONS; i++) {
+            int pkg = i / PER_PACKAGE;
+            int[] targets = new int[MUTUAL + RANDOM + NEIGHBORS];
+            int n = 0;
+            for (int k = 1; k <= MUTUAL / 2; k++) {
+                targets[n++] = Math.floorMod(i + k * PER_PACKAGE, DEFINITIONS);
+                targets[n++] = Math.floorMod(i - k * PER_PACKAGE, DEFINITIONS);
+            }
+            while (n < MUTUAL + RANDOM) {
+                int j = random.nextInt(DEFINITIONS);
+                if (j / PER_PACKAGE != pkg && !contains(targets, n, j)) {
+                    targets[n++] = j;
+                }
+            }
+            for (int k = 1; k <= NEIGHBORS; k++) {
+                targets[n++] = pkg * PER_PACKAGE + (i + k) % PER_PACKAGE;
+            }
+            dependencies[i] = targets;
+        }
+        return dependencies;
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static GenericDefinition[] definitions() {
+        GenericDefinition[] definitions = new GenericDefinition[DEFINITIONS];
+        for (int i = 0; i < DEFINITIONS; i++) {
+            definitions[i] = new GenericClass(className(i), packageName(i));
+        }
+        return definitions;
+    }
+
+    private static LinearAssociates[] linear(GenericDefinition[] definitions, int[][] dependencies) {
+        LinearAssociates[] linear = new LinearAssociates[DEFINITIONS];
+        for (int i = 0; i < DEFINITIONS; i++) {
+            linear[i] = new LinearAssociates();
+            for (int j : dependencies[i]) {
+                linear[i].add(definitions[j]);
+            }
+        }
+        return linear;
+    }
+
+    private void writeProject(int[][] dependencies) throws IOException {
+        for (int i = 0; i < DEFINITIONS; i++) {
+            StringBuilder source = new StringBuilder();
+            source.append("package ").append(packageName(i)).append(";\n\n");
+            for (int j : dependencies[i]) {
+                if (j / PER_PACKAGE != i / PER_PACKAGE) {
+                    source.append("import ").append(packageName(j)).append('.').append(className(j)).append(";\n");
+                }
+            }
+            source.append("\npublic class ").append(className(i)).append(" {\n");
+            for (int j : dependencies[i]) {
+                if (j / PER_PACKAGE == i / PER_PACKAGE) {
+                    source.append("    private ").append(className(j)).append(" f").append(j).append(";\n");
+                }
+            }
+            source.append("}\n");
+            File file = new File(new File(project, packageName(i)), className(i) + ".java");
+            FileUtils.writeStringToFile(file, source.toString(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String packageName(int i) {
+        return String.format("p%03d", i / PER_PACKAGE);
+    }
+
+    private static String className(int i) {
+        return String.format("C%02d", i % PER_PACKAGE);
+    }
+
+    private static void edge(StringBuilder out, int from, int to, boolean mutual) {
+        out.append("\tn").append(from).append(" -> n").append(to)
+                .append(mutual ? "[arrowhead=none]" : "[arrowhead=normal]").append('\n');
+    }
+
+    /** Returns the shortest of several runs, in nanoseconds. */
+    private static long best(Runnable task) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static void report(String operation, long before, long after) {
+        System.out.printf("%-20s %10.1f ms %10.1f ms  (%.1fx)%n", operation, before / 1e6, after / 1e6,
+                (double) before / after);
+    }
+
+    /**
+     * Association storage as it was before: a list, which kept duplicates,
+     * scanned with full names built on every comparison.
+     */
+    private static class LinearAssociates {
+
+        final List<GenericDefinition> associates = new ArrayList<>();
+
+        void add(GenericDefinition ref) {
+            associates.add(ref);
+        }
+
+        boolean contains(GenericDefinition gd) {
+            for (GenericDefinition c : associates) {
+                if ((c.getContext() + "/" + c.getName()).compareTo(gd.getContext() + "/" + gd.getName()) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
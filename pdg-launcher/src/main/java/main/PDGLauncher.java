@@ -23,12 +23,17 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.*;
 
 import org.apache.commons.cli.*;
 import org.apache.commons.collections4.properties.PropertiesFactory;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.apache.logging.log4j.LogManager;
@@ -36,8 +41,17 @@ import org.apache.logging.log4j.Logger;
 
 import com.jthemedetecor.OsThemeDetector;
 
+import guru.nidi.graphviz.engine.Format;
 import image.ConvertVisual;
+import image.DotProcess;
+import image.LayoutProfile;
+import image.MemberBudget;
+import image.NativeDot;
+import image.RenderCache;
 import ui.PDGWindow;
+import ui.util.DeepZoomWriter;
+import ui.util.TiledSvgRasterizer;
+import ui.util.graphviz.GraphvizEngineSetup;
 
 /**
  * The entry point used by Project Diagram Generator.
@@ -71,6 +85,20 @@ public class PDGLauncher {
      */
     public static final String ADDRESS_IMAGES = "./Diagram/images/";
 
+    /**
+     * The default directory to cache rendered images in. Can be overridden with
+     * the {@code pdg.cache.dir} system property or the {@code -cache} option.
+     */
+    public static final String ADDRESS_CACHE = SystemUtils.USER_HOME + File.separator + ".pdg" + File.separator
+            + "render-cache";
+
+    /**
+     * The default size budget of the render cache, in MiB. Can be overridden
+     * with the {@code pdg.cache.size} system property or the {@code -cachesize}
+     * option; zero disables the cache.
+     */
+    public static final long DEFAULT_CACHE_SIZE = 256;
+
     /** Private constructor. */
     private PDGLauncher() {
     }
@@ -109,6 +137,39 @@ public class PDGLauncher {
                 "If this argument is present, the generated diagram will show functions.");
         Option constants = new Option("c", false,
                 "If this argument is present, the generated diagram will show constants.");
+        Option threads = Option.builder("threads").hasArg(true).argName("count")
+                .desc("Specifies the number of threads used to process source files and to render partitions.")
+                .build();
+        Option partition = Option.builder("partition").hasArg(true).argName("max-definitions")
+                .desc("Draws the project as one diagram per package group of at most the given size, "
+                        + "plus an overview diagram.").build();
+        Option clusterBudget = Option.builder("clusterbudget").hasArg(true).argName("max-nodes")
+                .desc("Draws a package as a single summary node if its cluster would show more nodes.").build();
+        Option nodeBudget = Option.builder("nodebudget").hasArg(true).argName("max-nodes")
+                .desc("Summarizes packages, deepest first, until the diagram has at most this many nodes.")
+                .build();
+        Option maxMembers = Option.builder("maxmembers").hasArg(true).argName("count")
+                .desc("Lists at most this many members per compartment, followed by a count of the rest.").build();
+        Option foldOverloads = new Option("foldoverloads", false,
+                "If this argument is present, overloaded functions are listed as one line.");
+        Option layout = Option.builder("layout").hasArg(true).argName("fast|balanced|pretty|auto")
+                .desc("Specifies the layout profile (default: pretty); auto picks one from the size of the diagram.")
+                .build();
+        Option engine = Option.builder("engine").hasArg(true).argName("dot|neato|fdp|sfdp")
+                .desc("Overrides the layout engine of the layout profile; requires a profile other than auto.")
+                .build();
+        Option layoutBudget = Option.builder("layoutbudget").hasArg(true).argName("seconds")
+                .desc("Falls back to cheaper layout settings if a layout takes longer than this (native dot only).")
+                .build();
+        Option formats = Option.builder("formats").hasArg(true).argName("format,...")
+                .desc("Also draws the diagram in the given formats, such as svg or ps, from the same layout.")
+                .build();
+        Option deepZoom = new Option("deepzoom", false,
+                "If this argument is present, the diagram is also written as a Deep Zoom tile pyramid.");
+        Option cache = Option.builder("cache").hasArg(true).argName("directory")
+                .desc("Specifies the directory to cache rendered images in. May be shared between users.").build();
+        Option cacheSize = Option.builder("cachesize").hasArg(true).argName("MiB")
+                .desc("Specifies the size budget of the render cache; 0 disables the cache.").build();
         Option help = new Option("h", "help", false, "Displays this help message then exits.");
         Option version = new Option("v", "version", false, "Displays version info then exits.");
 
@@ -118,6 +179,19 @@ public class PDGLauncher {
         cliOptions.addOption(privateEntities);
         cliOptions.addOption(functions);
         cliOptions.addOption(constants);
+        cliOptions.addOption(threads);
+        cliOptions.addOption(partition);
+        cliOptions.addOption(clusterBudget);
+        cliOptions.addOption(nodeBudget);
+        cliOptions.addOption(maxMembers);
+        cliOptions.addOption(foldOverloads);
+        cliOptions.addOption(layout);
+        cliOptions.addOption(engine);
+        cliOptions.addOption(layoutBudget);
+        cliOptions.addOption(formats);
+        cliOptions.addOption(deepZoom);
+        cliOptions.addOption(cache);
+        cliOptions.addOption(cacheSize);
         cliOptions.addOption(help);
         cliOptions.addOption(version);
 
@@ -153,17 +227,189 @@ public class PDGLauncher {
         boolean func = line.hasOption(functions);
         boolean priv = line.hasOption(privateEntities);
         boolean consta = line.hasOption(constants);
-        runLoose(line.getOptionValue(root), line.getOptionValue(savename), inst, func, priv, consta, line.getArgs());
+        int threadCount = 1;
+        if (line.hasOption(threads)) {
+            try {
+                threadCount = Integer.parseInt(line.getOptionValue(threads));
+            } catch (NumberFormatException nfe) {
+                throw new ParseException("Invalid thread count: " + line.getOptionValue(threads));
+            }
+            if (threadCount < 1) {
+                throw new ParseException("Invalid thread count: " + threadCount);
+            }
+        }
+        int partitionSize = 0;
+        if (line.hasOption(partition)) {
+            try {
+                partitionSize = Integer.parseInt(line.getOptionValue(partition));
+            } catch (NumberFormatException nfe) {
+                throw new ParseException("Invalid partition size: " + line.getOptionValue(partition));
+            }
+            if (partitionSize < 1) {
+                throw new ParseException("Invalid partition size: " + partitionSize);
+            }
+        }
+        ConvertVisual.assignPartitionSize(partitionSize);
+        DotProcess.setDetailBudget(parseBudget(line, clusterBudget), parseBudget(line, nodeBudget));
+        DotProcess.setMemberBudget(new MemberBudget(parseBudget(line, maxMembers), line.hasOption(foldOverloads)));
+        DotProcess.setLayoutProfile(parseLayout(line, layout, engine));
+        ConvertVisual.assignLayoutBudget(TimeUnit.SECONDS.toMillis(parseBudget(line, layoutBudget)));
+        Format[] extraFormats = parseFormats(line, formats);
+        if (line.hasOption(deepZoom)) {
+            if (partitionSize > 0) {
+                throw new ParseException("-deepzoom cannot be combined with -partition");
+            }
+            // The tiles are painted from the SVG image
+            extraFormats = ArrayUtils.add(extraFormats, Format.SVG);
+        }
+        ConvertVisual.assignExtraFormats(extraFormats);
+        long cacheMiB = Long.getLong("pdg.cache.size", DEFAULT_CACHE_SIZE);
+        if (line.hasOption(cacheSize)) {
+            try {
+                cacheMiB = Long.parseLong(line.getOptionValue(cacheSize));
+            } catch (NumberFormatException nfe) {
+                throw new ParseException("Invalid cache size: " + line.getOptionValue(cacheSize));
+            }
+            if (cacheMiB < 0) {
+                throw new ParseException("Invalid cache size: " + cacheMiB);
+            }
+        }
+        configureCache(line.getOptionValue(cache, System.getProperty("pdg.cache.dir", ADDRESS_CACHE)), cacheMiB);
+        runLoose(line.getOptionValue(root), line.getOptionValue(savename), inst, func, priv, consta, threadCount,
+                line.hasOption(deepZoom), line.getArgs());
     }
 
     private static void runLoose(String path, String name, boolean inst, boolean func, boolean priv, boolean consta,
-            String... rem) {
+            int threadCount, boolean deepZoom, String... rem) {
         ConvertVisual.assignPath(ADDRESS_IMAGES);
+        ConvertVisual.assignSvgRasterizer(new TiledSvgRasterizer());
+        if (!NativeDot.isAvailable()) {
+            // Set up the engines while the project is being processed
+            ConvertVisual.assignEngineSetup(GraphvizEngineSetup.initialize());
+        }
         List<String> ignore = List.of(rem);
-        ConvertVisual.generateUMLDiagram(path, ignore, name, inst, func, priv, consta);
+        ExecutorService executor = threadCount > 1 ? Executors.newFixedThreadPool(threadCount) : null;
+        boolean failed = false;
+        try {
+            ConvertVisual.assignExecutor(executor);
+            ConvertVisual.assignBatchWorkers(threadCount);
+            ConvertVisual.generateUMLDiagram(path, ignore, name, inst, func, priv, consta);
+            if (deepZoom) {
+                new DeepZoomWriter().write(new File(ADDRESS_IMAGES, name + ".svg"),
+                        new File(ADDRESS_IMAGES, name + ".dzi"));
+            }
+        } catch (UncheckedIOException uioe) {
+            logger.error("Unable to draw the diagram", uioe.getCause());
+            failed = true;
+        } catch (IOException ioe) {
+            logger.error("Unable to write the Deep Zoom tile pyramid", ioe);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Parses the value of a budget option.
+     * 
+     * @param line   the parsed command line
+     * @param option a budget option
+     * @return the budget, or zero if the option is absent
+     * @throws ParseException if the value is not a positive integer
+     */
+    private static int parseBudget(CommandLine line, Option option) throws ParseException {
+        if (!line.hasOption(option)) {
+            return 0;
+        }
+        int budget;
+        try {
+            budget = Integer.parseInt(line.getOptionValue(option));
+        } catch (NumberFormatException nfe) {
+            throw new ParseException("Invalid " + option.getOpt() + ": " + line.getOptionValue(option));
+        }
+        if (budget < 1) {
+            throw new ParseException("Invalid " + option.getOpt() + ": " + budget);
+        }
+        return budget;
+    }
+
+    /**
+     * Parses the layout profile options.
+     * 
+     * @param line   the parsed command line
+     * @param layout the layout profile option
+     * @param engine the layout engine option
+     * @return the selected layout profile
+     * @throws ParseException if a value is invalid, or if an engine is given for
+     *                        the automatic profile
+     */
+    private static LayoutProfile parseLayout(CommandLine line, Option layout, Option engine) throws ParseException {
+        LayoutProfile profile = LayoutProfile.PRETTY;
+        try {
+            if (line.hasOption(layout)) {
+                profile = LayoutProfile.valueOf(line.getOptionValue(layout));
+            }
+            if (line.hasOption(engine)) {
+                if (profile == LayoutProfile.AUTO) {
+                    throw new ParseException("-engine requires -layout fast, balanced or pretty");
+                }
+                profile = profile.withEngine(
+                        LayoutProfile.Engine.valueOf(line.getOptionValue(engine).toUpperCase(Locale.ROOT)));
+            }
+        } catch (IllegalArgumentException iae) {
+            throw new ParseException(iae.getMessage());
+        }
+        return profile;
+    }
+
+    /**
+     * Parses the value of the extra formats option.
+     * 
+     * @param line    the parsed command line
+     * @param formats the extra formats option
+     * @return the formats, or an empty array if the option is absent
+     * @throws ParseException if a format is unknown
+     */
+    private static Format[] parseFormats(CommandLine line, Option formats) throws ParseException {
+        if (!line.hasOption(formats)) {
+            return new Format[0];
+        }
+        List<Format> parsed = new ArrayList<>();
+        for (String name : line.getOptionValue(formats).split(",")) {
+            try {
+                parsed.add(Format.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException iae) {
+                throw new ParseException("Invalid format: " + name);
+            }
+        }
+        return parsed.toArray(new Format[0]);
+    }
+
+    /**
+     * Assigns the render cache used by {@link ConvertVisual}.
+     * 
+     * @param dir     the cache directory
+     * @param sizeMiB the size budget in MiB; if zero, no cache is used
+     */
+    private static void configureCache(String dir, long sizeMiB) {
+        if (sizeMiB <= 0) {
+            ConvertVisual.assignCache(null);
+            return;
+        }
+        ConvertVisual.assignCache(new RenderCache(new File(dir), sizeMiB * 1024 * 1024));
     }
 
     private static void runReal() {
+        // Set up the Graphviz engines while the window is being built
+        GraphvizEngineSetup.initialize();
+
+        long cacheMiB = Long.getLong("pdg.cache.size", DEFAULT_CACHE_SIZE);
+        configureCache(System.getProperty("pdg.cache.dir", ADDRESS_CACHE), Math.max(cacheMiB, 0));
+        ConvertVisual.assignSvgRasterizer(new TiledSvgRasterizer());
 
         final OsThemeDetector detector = OsThemeDetector.getDetector();
 
@@ -49,10 +49,14 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.w3c.dom.svg.SVGDocument;
 
+import analysis.process.DirectoryCache;
 import analysis.process.Explore;
+import guru.nidi.graphviz.engine.Format;
 import image.ConvertVisual;
 import image.DotProcess;
-import ui.util.graphviz.GraphvizEngineInitializer;
+import image.LayoutProfile;
+import image.MemberBudget;
+import ui.util.graphviz.GraphvizEngineSetup;
 
 /**
  * The main GUI window for Project Diagram Generator.
@@ -79,9 +83,22 @@ public class PDGWindow extends JFrame {
     private static final String[] BOOLEAN_SELECTION = new String[] { "Show Instance Variables?",
             "Show Functions?",
             "Show Private Entities?",
-            "Show Constants?"
+            "Show Constants?",
+            "Fold Overloaded Functions?"
     };
 
+    /** Label of the layout profile selector */
+    private static final String LAYOUT_LABEL = "Layout:";
+
+    /** Label of the member budget spinner */
+    private static final String MEMBER_BUDGET_LABEL = "Max. members per compartment (0 = all):";
+
+    /** Tooltip of the generate button while the Graphviz engines are set up */
+    private static final String ENGINE_PENDING_TIP = "Preparing Graphviz...";
+
+    /** Tooltip of the generate button if no Graphviz engine is available */
+    private static final String ENGINE_MISSING_TIP = "No Graphviz engine available";
+
     /** Class logger */
     private static Logger logger = LogManager.getLogger();
 
@@ -119,11 +136,20 @@ public class PDGWindow extends JFrame {
     private Container configContainer;
 
     /** Toggleable option checkbox */
-    private JCheckBox instanceVarCheck, functionCheck, privateEntityCheck, constantCheck;
+    private JCheckBox instanceVarCheck, functionCheck, privateEntityCheck, constantCheck, foldOverloadsCheck;
+
+    /** Maximum number of members listed per compartment */
+    private JSpinner memberBudgetSpinner;
+
+    /** Layout profile selector */
+    private JComboBox<LayoutProfile> layoutSelector;
 
     /** The menu bar. */
     private JMenuBar menuBar;
 
+    /** Directory listings shared by the package browser and the analysis */
+    private final DirectoryCache directoryCache = new DirectoryCache();
+
     /**
      * Constructs a new {@code PDGWindow}.
      */
@@ -257,10 +283,15 @@ public class PDGWindow extends JFrame {
     private void setupInputContainer() {
 
         DirectoryOption directoryOption = new DirectoryOption(this);
-        PackageExcludeOption packageExcludeOption = new PackageExcludeOption(this, directoryOption);
+        PackageExcludeOption packageExcludeOption = new PackageExcludeOption(this, directoryOption, directoryCache);
         SaveOption saveOption = new SaveOption(this);
         JButton generateButton = new JButton("Generate image");
-        generateButton.setEnabled(GraphvizEngineInitializer.GRAPHVIZ_AVAILABLE);
+        generateButton.setEnabled(false);
+        generateButton.setToolTipText(ENGINE_PENDING_TIP);
+        GraphvizEngineSetup.initialize().thenAccept(available -> SwingUtilities.invokeLater(() -> {
+            generateButton.setEnabled(available);
+            generateButton.setToolTipText(available ? null : ENGINE_MISSING_TIP);
+        }));
         generateButton.addActionListener(event -> {
             new Thread(() -> {
                 try {
@@ -269,16 +300,26 @@ public class PDGWindow extends JFrame {
                     Explore.setParameters(instanceVarCheck.isSelected(), functionCheck.isSelected(),
                             privateEntityCheck.isSelected(), constantCheck.isSelected());
                     Explore e = new Explore(directoryOption.getDirectory());
+                    e.setDirectoryCache(directoryCache);
                     e.run();
                     DotProcess.setProject(e);
-                    String dot = DotProcess.generateDot();
-                    ConvertVisual.draw(dot, saveOption.getFilename(), saveOption.getFormat());
-
-                    svgCanvas.setSVGDocument(loadSVGFromFile(saveOption.getSavedFile()));
+                    DotProcess.setMemberBudget(new MemberBudget((Integer) memberBudgetSpinner.getValue(),
+                            foldOverloadsCheck.isSelected()));
+                    DotProcess.setLayoutProfile((LayoutProfile) layoutSelector.getSelectedItem());
+                    File svg;
+                    if (saveOption.getFormat() == Format.PNG) {
+                        // Rasterized from the SVG image, which is shown
+                        svg = ConvertVisual.drawFormats(saveOption.getFilename(), Format.SVG, Format.PNG)
+                                .get(Format.SVG);
+                    } else {
+                        svg = ConvertVisual.drawProject(saveOption.getFilename(), saveOption.getFormat());
+                    }
+
+                    svgCanvas.setSVGDocument(loadSVGFromFile(svg));
                 } catch (Throwable exception) {
                     logger.catching(exception);
                 }
-                generateButton.setEnabled(GraphvizEngineInitializer.GRAPHVIZ_AVAILABLE);
+                generateButton.setEnabled(GraphvizEngineSetup.initialize().join());
                 generateButton.setText("Generate image");
             }, "Diagram generator").start();
         });
@@ -316,11 +357,32 @@ public class PDGWindow extends JFrame {
         functionCheck = new JCheckBox(BOOLEAN_SELECTION[1], false);
         privateEntityCheck = new JCheckBox(BOOLEAN_SELECTION[2], false);
         constantCheck = new JCheckBox(BOOLEAN_SELECTION[3], false);
+        foldOverloadsCheck = new JCheckBox(BOOLEAN_SELECTION[4], false);
+        memberBudgetSpinner = new JSpinner(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 5));
+
+        Box memberBudgetBox = Box.createHorizontalBox();
+        memberBudgetBox.add(new JLabel(MEMBER_BUDGET_LABEL));
+        memberBudgetBox.add(Box.createHorizontalStrut(4));
+        memberBudgetBox.add(memberBudgetSpinner);
+        memberBudgetBox.setAlignmentX(0f);
+        memberBudgetBox.setMaximumSize(memberBudgetBox.getPreferredSize());
+
+        layoutSelector = new JComboBox<>(LayoutProfile.values());
+        layoutSelector.setSelectedItem(LayoutProfile.PRETTY);
+        Box layoutBox = Box.createHorizontalBox();
+        layoutBox.add(new JLabel(LAYOUT_LABEL));
+        layoutBox.add(Box.createHorizontalStrut(4));
+        layoutBox.add(layoutSelector);
+        layoutBox.setAlignmentX(0f);
+        layoutBox.setMaximumSize(layoutBox.getPreferredSize());
 
         optionContainer.add(instanceVarCheck);
         optionContainer.add(functionCheck);
         optionContainer.add(privateEntityCheck);
         optionContainer.add(constantCheck);
+        optionContainer.add(foldOverloadsCheck);
+        optionContainer.add(memberBudgetBox);
+        optionContainer.add(layoutBox);
 
         GridBagConstraints c = new GridBagConstraints();
 
@@ -28,6 +28,7 @@ import java.util.Set;
 
 import javax.swing.tree.TreePath;
 
+import analysis.process.DirectoryCache;
 import ui.util.PackageTreeNode;
 
 /**
@@ -43,6 +44,8 @@ class PackageExcludeOption extends InputOption {
 
     /** The directory option */
     private DirectoryOption directoryOption;
+    /** The cache that package directories are listed through */
+    private DirectoryCache directoryCache;
     /** The list of ignored packages */
     private List<String> ignoredPackages = new ArrayList<String>();
 
@@ -51,10 +54,13 @@ class PackageExcludeOption extends InputOption {
      * 
      * @param parent          the frame that owns this {@code PackageExcludeOption}
      * @param directoryOption the directory option
+     * @param directoryCache  the cache that package directories are listed
+     *                        through
      */
-    public PackageExcludeOption(Frame parent, DirectoryOption directoryOption) {
+    public PackageExcludeOption(Frame parent, DirectoryOption directoryOption, DirectoryCache directoryCache) {
         super(DEFAULT_PKG_TEXT);
         this.directoryOption = Objects.requireNonNull(directoryOption);
+        this.directoryCache = Objects.requireNonNull(directoryCache);
 
         addButtonActionListener(e -> {
             PackageExcludePopup pep = new PackageExcludePopup(parent, PackageExcludeOption.this);
@@ -73,6 +79,17 @@ class PackageExcludeOption extends InputOption {
         return directoryOption.getDirectory();
     }
 
+    /**
+     * Returns the cache that package directories are listed through.
+     * 
+     * @return the directory cache
+     * 
+     * @since 2.1.0
+     */
+    DirectoryCache getDirectoryCache() {
+        return directoryCache;
+    }
+
     /**
      * Processes the packages to ignore.
      * 
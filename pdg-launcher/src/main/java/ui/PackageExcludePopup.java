@@ -29,6 +29,9 @@ import java.util.Queue;
 import java.util.Set;
 
 import javax.swing.*;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
+import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 
@@ -80,7 +83,22 @@ class PackageExcludePopup extends JDialog {
             throw new IllegalArgumentException("Argument does not represent a directory");
         }
         setLayout(new BorderLayout());
-        tree = new JCheckBoxTree(new PackageTreeNode(rootDir));
+        PackageTreeNode root = new PackageTreeNode(rootDir, this.peo.getDirectoryCache());
+        tree = new JCheckBoxTree(root);
+        DefaultTreeModel model = (DefaultTreeModel) tree.getModel();
+        tree.addTreeWillExpandListener(new TreeWillExpandListener() {
+            @Override
+            public void treeWillExpand(TreeExpansionEvent event) {
+                ((PackageTreeNode) event.getPath().getLastPathComponent()).loadChildren(model);
+            }
+
+            @Override
+            public void treeWillCollapse(TreeExpansionEvent event) {
+                ((PackageTreeNode) event.getPath().getLastPathComponent()).cancelLoading();
+            }
+        });
+        // The root starts out expanded
+        root.loadChildren(model);
         scrollPane = new JScrollPane(tree);
         setPreferredSize(new Dimension(DEFAULT_WIDTH, DEFAULT_HEIGHT));
         add(scrollPane, BorderLayout.CENTER);
@@ -90,6 +108,8 @@ class PackageExcludePopup extends JDialog {
         setModal(true);
         setLocationRelativeTo(parent);
         setVisible(true);
+        // Closed; stop listing directories that are no longer shown
+        root.cancelLoading();
     }
 
     /**
@@ -104,8 +124,12 @@ class PackageExcludePopup extends JDialog {
             paths.add(new TreePath(root));
             while (!paths.isEmpty()) {
                 TreePath currPath = paths.poll();
+                PackageTreeNode currNode = (PackageTreeNode) currPath.getLastPathComponent();
+                if (currNode.isPlaceholder()) {
+                    // Stands in for subpackages that are not loaded
+                    continue;
+                }
                 if (tree.isSelected(currPath)) {
-                    TreeNode currNode = (TreeNode) currPath.getLastPathComponent();
                     for (int i = 0; i < currNode.getChildCount(); i++) {
                         paths.add(currPath.pathByAddingChild(currNode.getChildAt(i)));
                     }
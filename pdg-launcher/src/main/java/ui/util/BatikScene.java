@@ -0,0 +1,113 @@
+/*
+ * This file is part of the Project-Diagram-Generator distribution
+ * (https://github.com/syoon2/Project-Diagram-Generator).
+ * Copyright (c) 2024 Sung Ho Yoon.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package ui.util;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Dimension2D;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.bridge.*;
+import org.apache.batik.gvt.GraphicsNode;
+import org.apache.batik.util.XMLResourceDescriptor;
+import org.w3c.dom.svg.SVGDocument;
+
+/**
+ * An SVG image loaded with Batik, ready to be painted region by region.
+ * Instances are not thread-safe; threads that paint concurrently each need a
+ * scene of their own.
+ *
+ * @since 2.1.0
+ */
+final class BatikScene implements AutoCloseable {
+
+    private final BridgeContext context;
+    private final GraphicsNode root;
+    private final int width;
+    private final int height;
+
+    /**
+     * Loads an SVG image.
+     *
+     * @param svg the SVG image
+     * @throws IOException if the image cannot be read, or is empty
+     */
+    BatikScene(File svg) throws IOException {
+        context = new BridgeContext(new UserAgentAdapter());
+        try {
+            context.setDynamicState(BridgeContext.STATIC);
+            SVGDocument document = new SAXSVGDocumentFactory(XMLResourceDescriptor.getXMLParserClassName())
+                    .createSVGDocument(svg.toURI().toString());
+            try {
+                root = new GVTBuilder().build(context, document);
+            } catch (BridgeException be) {
+                throw new IOException("Unable to read " + svg, be);
+            }
+            Dimension2D size = context.getDocumentSize();
+            width = (int) Math.ceil(size.getWidth());
+            height = (int) Math.ceil(size.getHeight());
+            if (width < 1 || height < 1) {
+                throw new IOException("Empty image: " + svg);
+            }
+        } catch (IOException | RuntimeException e) {
+            context.dispose();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the width of the image at full size.
+     *
+     * @return the width in pixels
+     */
+    int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the image at full size.
+     *
+     * @return the height in pixels
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Paints the image. Only the parts within the clip of the graphics
+     * context need to be painted, so the clip should be set to the region of
+     * interest.
+     *
+     * @param g the graphics context
+     */
+    void paint(Graphics2D g) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        root.paint(g);
+    }
+
+    @Override
+    public void close() {
+        context.dispose();
+    }
+}
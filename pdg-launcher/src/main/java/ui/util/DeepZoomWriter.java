@@ -0,0 +1,232 @@
+/*
+ * This file is part of the Project-Diagram-Generator distribution
+ * (https://github.com/syoon2/Project-Diagram-Generator).
+ * Copyright (c) 2024 Sung Ho Yoon.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package ui.util;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.logging.log4j.*;
+
+/**
+ * Writes SVG images as Deep Zoom (DZI) tile pyramids, which viewers such as
+ * OpenSeadragon can pan and zoom without loading the whole image.
+ * <p>
+ * The pyramid for {@code name.dzi} is stored in the directory
+ * {@code name_files}, with one subdirectory of {@value #TILE_SIZE} pixel PNG
+ * tiles per level. The top level shows the image at full size, and each level
+ * below it at half the size of the one above, down to a single pixel. Every
+ * tile is painted straight from the vector image at the scale of its level.
+ * Tiles are painted in parallel, each thread with its own copy of the image,
+ * as Batik does not support painting one image from several threads. A copy
+ * of a large image takes a lot of memory, so fewer threads are used when the
+ * heap could not hold a copy for each.
+ *
+ * @since 2.1.0
+ */
+public class DeepZoomWriter {
+
+    /** The width and height of a tile, not counting the overlap. */
+    public static final int TILE_SIZE = 256;
+    /** The number of pixels that neighboring tiles share. */
+    public static final int OVERLAP = 1;
+
+    /** Suffix of the tile directory name. */
+    private static final String TILES_SUFFIX = "_files";
+    private static final String TILE_FORMAT = "png";
+    /**
+     * Estimated memory taken by a loaded image per byte of the SVG file, for
+     * its document and graphics nodes.
+     */
+    private static final int SCENE_BYTES_PER_SVG_BYTE = 32;
+
+    private static Logger logger = LogManager.getLogger();
+
+    private final int threads;
+
+    /**
+     * Constructs a new {@code DeepZoomWriter} that paints with one thread per
+     * processor.
+     */
+    public DeepZoomWriter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new {@code DeepZoomWriter}.
+     *
+     * @param threads the number of threads that paint tiles
+     * @throws IllegalArgumentException if {@code threads} is not positive
+     */
+    public DeepZoomWriter(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid thread count: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Writes an SVG image as a tile pyramid, replacing any existing one.
+     *
+     * @param svg the SVG image
+     * @param dzi the descriptor file to write; the tiles are written next to it
+     * @throws IOException if the image cannot be read, or if writing fails
+     */
+    public void write(File svg, File dzi) throws IOException {
+        File tileDir = new File(dzi.getAbsoluteFile().getParentFile(),
+                FilenameUtils.removeExtension(dzi.getName()) + TILES_SUFFIX);
+        // Tiles of a larger, earlier image would otherwise remain
+        FileUtils.deleteDirectory(tileDir);
+
+        BatikScene first = new BatikScene(svg);
+        int width = first.getWidth();
+        int height = first.getHeight();
+        List<Tile> tiles;
+        try {
+            tiles = layOut(width, height, tileDir);
+        } catch (IOException | RuntimeException e) {
+            first.close();
+            throw e;
+        }
+        int workers = Math.min(Math.min(threads, tiles.size()), 1 + spareScenes(svg));
+        logger.info("Painting " + tiles.size() + " tiles of " + svg + " with " + workers + " threads");
+
+        AtomicInteger next = new AtomicInteger();
+        List<Callable<Void>> jobs = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            BatikScene loaded = i == 0 ? first : null;
+            jobs.add(() -> {
+                try (BatikScene scene = loaded != null ? loaded : new BatikScene(svg)) {
+                    int index;
+                    while ((index = next.getAndIncrement()) < tiles.size()) {
+                        tiles.get(index).paint(scene);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // Stops the other threads
+                    next.set(tiles.size());
+                    throw e;
+                }
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            for (Future<Void> job : executor.invokeAll(jobs)) {
+                job.get();
+            }
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof IOException) {
+                throw (IOException) ee.getCause();
+            }
+            throw new IOException(ee.getCause());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while painting tiles", ie);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        String descriptor = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<Image xmlns=\"http://schemas.microsoft.com/deepzoom/2008\" TileSize=\"" + TILE_SIZE
+                + "\" Overlap=\"" + OVERLAP + "\" Format=\"" + TILE_FORMAT + "\">\n"
+                + "  <Size Width=\"" + width + "\" Height=\"" + height + "\"/>\n"
+                + "</Image>\n";
+        FileUtils.writeStringToFile(dzi, descriptor, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Estimates how many more copies of an image fit in half of the heap that
+     * is not in use, leaving the rest for the tiles being painted.
+     */
+    private static int spareScenes(File svg) {
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        long scene = Math.max(1, svg.length() * SCENE_BYTES_PER_SVG_BYTE);
+        return (int) Math.min(Integer.MAX_VALUE - 1, Math.max(0, free / 2 / scene));
+    }
+
+    /** Lists the tiles of every level, creating the level directories. */
+    private static List<Tile> layOut(int width, int height, File tileDir) throws IOException {
+        // The level at which the image is shown at full size
+        int top = 32 - Integer.numberOfLeadingZeros(Math.max(width, height) - 1);
+        List<Tile> tiles = new ArrayList<>();
+        for (int level = 0; level <= top; level++) {
+            double scale = 1d / (1L << (top - level));
+            int levelWidth = (int) Math.ceil(width * scale);
+            int levelHeight = (int) Math.ceil(height * scale);
+            File levelDir = new File(tileDir, Integer.toString(level));
+            if (!levelDir.mkdirs()) {
+                throw new IOException("Unable to create " + levelDir);
+            }
+            for (int row = 0; row * TILE_SIZE < levelHeight; row++) {
+                for (int col = 0; col * TILE_SIZE < levelWidth; col++) {
+                    tiles.add(new Tile(levelDir, col, row, scale, levelWidth, levelHeight));
+                }
+            }
+        }
+        return tiles;
+    }
+
+    /** A single tile of the pyramid. */
+    private static class Tile {
+
+        private final File file;
+        private final double scale;
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+
+        Tile(File levelDir, int col, int row, double scale, int levelWidth, int levelHeight) {
+            this.file = new File(levelDir, col + "_" + row + FilenameUtils.EXTENSION_SEPARATOR + TILE_FORMAT);
+            this.scale = scale;
+            this.x = col * TILE_SIZE - (col > 0 ? OVERLAP : 0);
+            this.y = row * TILE_SIZE - (row > 0 ? OVERLAP : 0);
+            this.width = Math.min(levelWidth, (col + 1) * TILE_SIZE + OVERLAP) - x;
+            this.height = Math.min(levelHeight, (row + 1) * TILE_SIZE + OVERLAP) - y;
+        }
+
+        void paint(BatikScene scene) throws IOException {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = image.createGraphics();
+            try {
+                g.translate(-x, -y);
+                g.clipRect(x, y, width, height);
+                g.scale(scale, scale);
+                scene.paint(g);
+            } finally {
+                g.dispose();
+            }
+            if (!ImageIO.write(image, TILE_FORMAT, file)) {
+                throw new IOException("No PNG writer available");
+            }
+        }
+    }
+}
@@ -30,18 +30,20 @@ import java.awt.Component;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.EventListener;
 import java.util.EventObject;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import javax.swing.JCheckBox;
 import javax.swing.JPanel;
 import javax.swing.JTree;
 import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeCellRenderer;
@@ -65,7 +67,11 @@ public class JCheckBoxTree extends JTree {
      * 
      * @author Sung Ho Yoon
      * @since 2.0
+     * @deprecated The checking state is no longer kept per node; use
+     *             {@link JCheckBoxTree#isSelected(TreePath)} and
+     *             {@link JCheckBoxTree#isSelectedPartially(TreePath)} instead.
      */
+    @Deprecated(since = "2.1.0")
     public static class CheckedNode {
         private boolean isSelected;
         private boolean hasChildren;
@@ -105,8 +111,19 @@ public class JCheckBoxTree extends JTree {
         }
     }
 
-    private Map<TreePath, CheckedNode> nodesCheckingState;
-    private Set<TreePath> checkedPaths;
+    /**
+     * Nodes whose checking state was set explicitly, by identity. All other
+     * nodes inherit the state of their nearest ancestor in this map, and the
+     * root is checked unless set otherwise.
+     */
+    private Map<TreeNode, Boolean> explicitStates;
+    /**
+     * Number of unchecked ({@code [0]}) and checked ({@code [1]}) explicit
+     * states strictly below each node that has any.
+     */
+    private Map<TreeNode, int[]> explicitStatesBelow;
+    /** Keeps the checking state in line with changes to the model. */
+    private TreeModelListener checkingStateUpdater;
 
     /**
      * Listeners that monitor check changes.
@@ -215,9 +232,8 @@ public class JCheckBoxTree extends JTree {
                 if (tp == null) {
                     return;
                 }
-                boolean checkMode = !nodesCheckingState.get(tp).isSelected;
+                boolean checkMode = !isSelected(tp);
                 checkSubTree(tp, checkMode);
-                updatePredecessorsWithCheckMode(tp, checkMode);
                 // Firing the check change event
                 fireCheckChangeEvent(new CheckChangeEvent(tp, checkMode));
                 // Repainting tree after the data structures were updated
@@ -300,29 +316,45 @@ public class JCheckBoxTree extends JTree {
      */
     @Override
     public void setModel(TreeModel newModel) {
+        TreeModel oldModel = getModel();
+        if (oldModel != null && checkingStateUpdater != null) {
+            oldModel.removeTreeModelListener(checkingStateUpdater);
+        }
         super.setModel(newModel);
         resetCheckingState();
+        if (newModel != null) {
+            // Called by the JTree constructor, before fields are initialized
+            if (checkingStateUpdater == null) {
+                checkingStateUpdater = new CheckingStateUpdater();
+            }
+            newModel.addTreeModelListener(checkingStateUpdater);
+        }
     }
 
     /**
-     * Returns only the checked paths. This method totally ignores original
-     * {@link JTree#getSelectionPaths() "selection" mechanism}.
+     * Returns the paths that were checked explicitly. Their descendants are
+     * checked as well, unless they were unchecked afterwards. This method
+     * totally ignores original {@link JTree#getSelectionPaths() "selection"
+     * mechanism}.
      *
      * @return the checked paths
      */
     public TreePath[] getCheckedPaths() {
-        return checkedPaths.toArray(new TreePath[checkedPaths.size()]);
+        return explicitStates.entrySet().stream()
+                .filter(Map.Entry::getValue)
+                .map(entry -> buildTreePath(entry.getKey()))
+                .toArray(TreePath[]::new);
     }
 
     /**
-     * Checks whether a (sub)tree is fully selected.
+     * Checks whether a (sub)tree is selected, either itself or through one of
+     * its descendants.
      *
      * @param path a (sub)tree represented as a tree path
-     * @return {@code true} if the node <i>and</i> all of its children are selected
+     * @return {@code true} if the node or any of its descendants is selected
      */
     public boolean isSelected(TreePath path) {
-        CheckedNode cn = nodesCheckingState.get(path);
-        return cn.isSelected;
+        return isSelected((TreeNode) path.getLastPathComponent());
     }
 
     /**
@@ -333,38 +365,142 @@ public class JCheckBoxTree extends JTree {
      *         them are selected
      */
     public boolean isSelectedPartially(TreePath path) {
-        CheckedNode cn = nodesCheckingState.get(path);
-        return cn.isSelected && cn.hasChildren && !cn.allChildrenSelected;
+        return isSelectedPartially((TreeNode) path.getLastPathComponent());
+    }
+
+    private boolean isSelected(TreeNode node) {
+        // If at least one descendant is selected, the node is selected as well
+        return inheritedState(node) || countBelow(node, true) > 0;
+    }
+
+    private boolean isSelectedPartially(TreeNode node) {
+        return countBelow(node, !inheritedState(node)) > 0;
+    }
+
+    /**
+     * Returns the state of the nearest node, starting from the specified node
+     * itself, whose state was set explicitly.
+     */
+    private boolean inheritedState(TreeNode node) {
+        for (TreeNode n = node; n != null; n = n.getParent()) {
+            Boolean state = explicitStates.get(n);
+            if (state != null) {
+                return state;
+            }
+        }
+        return true;
+    }
+
+    private int countBelow(TreeNode node, boolean state) {
+        int[] counts = explicitStatesBelow.get(node);
+        return counts == null ? 0 : counts[state ? 1 : 0];
     }
 
     private void resetCheckingState() {
-        nodesCheckingState = new LinkedHashMap<TreePath, CheckedNode>();
-        checkedPaths = new LinkedHashSet<TreePath>();
-        TreeNode node = (TreeNode) getModel().getRoot();
-        if (node == null) {
-            return;
+        explicitStates = new IdentityHashMap<>();
+        explicitStatesBelow = new IdentityHashMap<>();
+    }
+
+    /**
+     * Sets the state of a node explicitly, discarding the explicit states of
+     * its descendants. States that match the inherited state are not kept.
+     */
+    private void setExplicitState(TreeNode node, boolean check) {
+        if (countBelow(node, false) + countBelow(node, true) > 0) {
+            List<TreeNode> below = new ArrayList<>();
+            for (TreeNode n : explicitStates.keySet()) {
+                if (isStrictDescendant(n, node)) {
+                    below.add(n);
+                }
+            }
+            below.forEach(this::removeExplicitState);
+        }
+        removeExplicitState(node);
+        if (inheritedState(node) != check) {
+            explicitStates.put(node, check);
+            countAbove(node, check, 1);
+        }
+    }
+
+    private void removeExplicitState(TreeNode node) {
+        Boolean state = explicitStates.remove(node);
+        if (state != null) {
+            countAbove(node, state, -1);
+        }
+    }
+
+    /** Adds to the count of explicit states below each ancestor of a node. */
+    private void countAbove(TreeNode node, boolean state, int delta) {
+        for (TreeNode n = node.getParent(); n != null; n = n.getParent()) {
+            int[] counts = explicitStatesBelow.computeIfAbsent(n, key -> new int[2]);
+            counts[state ? 1 : 0] += delta;
+            if (counts[0] == 0 && counts[1] == 0) {
+                explicitStatesBelow.remove(n);
+            }
         }
-        addSubtreeToCheckingStateTracking(node);
+    }
+
+    private static boolean isStrictDescendant(TreeNode node, TreeNode ancestor) {
+        for (TreeNode n = node.getParent(); n != null; n = n.getParent()) {
+            if (n == ancestor) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Create data structure of the current model for the checking mechanism.
-     *
-     * @param node a node
+     * Discards the explicit states of nodes that are no longer in the tree,
+     * and counts the remaining ones again.
      */
-    private void addSubtreeToCheckingStateTracking(TreeNode node) {
-        TreePath tp = buildTreePath(node);
-        CheckedNode cn = new CheckedNode(true, node.getChildCount() > 0, true);
-        nodesCheckingState.put(tp, cn);
-        for (int i = 0; i < node.getChildCount(); i++) {
-            addSubtreeToCheckingStateTracking(
-                    (TreeNode) tp.pathByAddingChild(node.getChildAt(i)).getLastPathComponent());
+    private void pruneExplicitStates() {
+        Object root = getModel() == null ? null : getModel().getRoot();
+        explicitStates.keySet().removeIf(node -> !isInTree(node, root));
+        explicitStatesBelow.clear();
+        explicitStates.forEach((node, state) -> countAbove(node, state, 1));
+    }
+
+    private static boolean isInTree(TreeNode node, Object root) {
+        TreeNode n = node;
+        while (n != root) {
+            TreeNode parent = n.getParent();
+            if (parent == null || parent.getIndex(n) < 0) {
+                return false;
+            }
+            n = parent;
+        }
+        return true;
+    }
+
+    /**
+     * Updates the checking state when nodes are removed or replaced, such as
+     * when children are loaded lazily. New nodes need no tracking, as they
+     * inherit the state of their ancestors.
+     */
+    private class CheckingStateUpdater implements TreeModelListener {
+
+        @Override
+        public void treeNodesChanged(TreeModelEvent e) {
+        }
+
+        @Override
+        public void treeNodesInserted(TreeModelEvent e) {
+        }
+
+        @Override
+        public void treeNodesRemoved(TreeModelEvent e) {
+            pruneExplicitStates();
+        }
+
+        @Override
+        public void treeStructureChanged(TreeModelEvent e) {
+            pruneExplicitStates();
         }
     }
 
     /**
      * Cell renderer for {@code JCheckBoxTree}.
-     * 
+     *
      * @author Sung Ho Yoon
      * @since 2.0
      */
@@ -384,14 +520,9 @@ public class JCheckBoxTree extends JTree {
                 boolean selected, boolean expanded, boolean leaf, int row,
                 boolean hasFocus) {
             TreeNode node = (TreeNode) value;
-            TreePath tp = buildTreePath(node);
-            CheckedNode cn = nodesCheckingState.get(tp);
-            if (cn == null) {
-                return this;
-            }
-            checkBox.setSelected(cn.isSelected);
+            checkBox.setSelected(JCheckBoxTree.this.isSelected(node));
             checkBox.setText(node.toString());
-            checkBox.setOpaque(cn.isSelected && cn.hasChildren && !cn.allChildrenSelected);
+            checkBox.setOpaque(JCheckBoxTree.this.isSelectedPartially(node));
             return this;
         }
     }
@@ -401,57 +532,23 @@ public class JCheckBoxTree extends JTree {
      *
      * @param tp    the predecessors represented as a tree path
      * @param check whether to check the specified subtree
+     * @deprecated The states of the predecessors are derived from those of
+     *             their descendants when needed, so there is nothing to
+     *             update.
      */
+    @Deprecated(since = "2.1.0")
     protected void updatePredecessorsWithCheckMode(TreePath tp, boolean check) {
-        TreePath parentPath = tp.getParentPath();
-        // If it is the root, stop the recursive calls and return
-        if (parentPath == null)
-            return;
-        CheckedNode parentCheckedNode = nodesCheckingState.get(parentPath);
-        TreeNode parentNode = (TreeNode) parentPath.getLastPathComponent();
-        parentCheckedNode.allChildrenSelected = true;
-        // parentCheckedNode.isSelected = false;
-        for (int i = 0; i < parentNode.getChildCount(); i++) {
-            TreePath childPath = parentPath.pathByAddingChild(parentNode.getChildAt(i));
-            CheckedNode childCheckedNode = nodesCheckingState.get(childPath);
-            // It is enough that even one subtree is not fully selected
-            // to determine that the parent is not fully selected
-            if (!childCheckedNode.allChildrenSelected) {
-                parentCheckedNode.allChildrenSelected = false;
-            }
-            // If at least one child is selected, selecting also the parent
-            if (childCheckedNode.isSelected) {
-                parentCheckedNode.isSelected = true;
-            }
-        }
-        if (parentCheckedNode.isSelected) {
-            checkedPaths.add(parentPath);
-        } else {
-            checkedPaths.remove(parentPath);
-        }
-        // Go to upper predecessor
-        updatePredecessorsWithCheckMode(parentPath, check);
     }
 
     /**
-     * Recursively checks/unchecks a subtree.
+     * Checks/unchecks a subtree. This takes time proportional to the depth of
+     * the node, plus the number of explicitly set states replaced below it.
      *
      * @param tp    a subtree represented as a tree path
      * @param check whether to check the specified subtree
      */
     protected void checkSubTree(TreePath tp, boolean check) {
-        CheckedNode cn = nodesCheckingState.get(tp);
-        cn.isSelected = check;
-        TreeNode node = (TreeNode) tp.getLastPathComponent();
-        for (int i = 0; i < node.getChildCount(); i++) {
-            checkSubTree(tp.pathByAddingChild(node.getChildAt(i)), check);
-        }
-        cn.allChildrenSelected = check;
-        if (check) {
-            checkedPaths.add(tp);
-        } else {
-            checkedPaths.remove(tp);
-        }
+        setExplicitState((TreeNode) tp.getLastPathComponent(), check);
     }
 
     /**
@@ -24,24 +24,48 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 
+import javax.swing.SwingWorker;
+import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeNode;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import analysis.process.DirectoryCache;
+
 /**
  * Implementation of a package in a package tree,
  * represented as a {@link TreeNode}.
+ * <p>
+ * Subpackages are loaded lazily: until {@link #loadChildren(DefaultTreeModel)}
+ * is called and the directory has been listed in the background, a node has a
+ * single {@link #isPlaceholder() placeholder} child. Nodes are meant to be
+ * used on the event dispatch thread only.
  * 
  * @author Sung Ho Yoon
  * @since 2.0
  */
 public class PackageTreeNode implements TreeNode {
 
+    /** Label of the placeholder shown while subpackages are loading. */
+    private static final String PLACEHOLDER_LABEL = "Loading...";
+
+    private static Logger logger = LogManager.getLogger();
+
     /** Parent package */
     private PackageTreeNode parent;
     /** Package directory that this {@code PackageTreeNode} represents. */
     private File dir;
-    /** List of subpackages. */
+    /** Cache that directories are listed through. */
+    private DirectoryCache cache;
+    /** List of subpackages; {@code null} until loaded. */
     private List<PackageTreeNode> subNodes;
+    /** Placeholder child shown until subpackages are loaded. */
+    private PackageTreeNode placeholder;
+    /** Background task loading the subpackages, if any. */
+    private SwingWorker<List<PackageTreeNode>, Void> loader;
 
     /**
      * Constructs a new {@code PackageTreeNode}.
@@ -53,32 +77,155 @@ public class PackageTreeNode implements TreeNode {
      * @throws NullPointerException     if argument is {@code null}
      */
     public PackageTreeNode(File dir) {
-        this(null, dir);
+        this(dir, new DirectoryCache());
+    }
+
+    /**
+     * Constructs a new {@code PackageTreeNode} that lists directories through
+     * the specified cache.
+     * 
+     * @param dir   the root directory of a project
+     * @param cache the directory cache
+     * 
+     * @throws IllegalArgumentException if {@code dir} does not represent a valid
+     *                                  directory
+     * @throws NullPointerException     if any argument is {@code null}
+     * 
+     * @since 2.1.0
+     */
+    public PackageTreeNode(File dir, DirectoryCache cache) {
+        this(null, dir, cache);
     }
 
     /**
      * Constructs a new {@code PackageTreeNode} with the specified parent.
      * 
-     * @param dir the directory of a package
+     * @param dir   the directory of a package
+     * @param cache the directory cache
      * 
      * @throws IllegalArgumentException if {@code dir} does not represent a valid
      *                                  directory
-     * @throws NullPointerException     if {@code dir} is {@code null}
+     * @throws NullPointerException     if {@code dir} or {@code cache} is
+     *                                  {@code null}
      */
-    PackageTreeNode(PackageTreeNode parent, File dir) {
+    PackageTreeNode(PackageTreeNode parent, File dir, DirectoryCache cache) {
         this.parent = parent;
         if (!Objects.requireNonNull(dir).isDirectory()) {
             throw new IllegalArgumentException(dir + " is not a valid directory");
         }
         this.dir = dir;
-        File[] subdirectories = this.dir.listFiles(path -> path.isDirectory() && !path.isHidden());
-        if (subdirectories.length > 0) {
-            subNodes = new ArrayList<PackageTreeNode>();
-            for (File subdirectory : subdirectories) {
-                subNodes.add(new PackageTreeNode(this, subdirectory));
+        this.cache = Objects.requireNonNull(cache);
+        this.placeholder = new PackageTreeNode(this);
+    }
+
+    /**
+     * Constructs a new placeholder {@code PackageTreeNode}.
+     * 
+     * @param parent the node whose subpackages are loading
+     */
+    private PackageTreeNode(PackageTreeNode parent) {
+        this.parent = parent;
+        this.subNodes = Collections.emptyList();
+    }
+
+    /**
+     * Loads the subpackages of this node in the background, unless they are
+     * loaded or loading already. Once loaded, the structure change of this
+     * node is reported to the specified model. Must be called on the event
+     * dispatch thread.
+     * 
+     * @param model the model that this node belongs to
+     * 
+     * @since 2.1.0
+     */
+    public void loadChildren(DefaultTreeModel model) {
+        if (subNodes != null || loader != null) {
+            return;
+        }
+        loader = new SwingWorker<List<PackageTreeNode>, Void>() {
+            @Override
+            protected List<PackageTreeNode> doInBackground() {
+                File[] subdirectories = cache.listDirectories(dir);
+                if (subdirectories == null) {
+                    return Collections.emptyList();
+                }
+                List<PackageTreeNode> nodes = new ArrayList<>(subdirectories.length);
+                for (File subdirectory : subdirectories) {
+                    if (isCancelled()) {
+                        break;
+                    }
+                    if (!DirectoryCache.isSkipped(subdirectory)) {
+                        nodes.add(new PackageTreeNode(PackageTreeNode.this, subdirectory, cache));
+                    }
+                }
+                return nodes;
             }
-        } else
-            subNodes = Collections.emptyList();
+
+            @Override
+            protected void done() {
+                if (loader != this) {
+                    // Cancelled, and possibly restarted since
+                    return;
+                }
+                loader = null;
+                try {
+                    subNodes = get();
+                } catch (ExecutionException ee) {
+                    logger.warn("Unable to list " + dir, ee.getCause());
+                    subNodes = Collections.emptyList();
+                } catch (InterruptedException ie) {
+                    // get() does not block once done
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                model.nodeStructureChanged(PackageTreeNode.this);
+            }
+        };
+        loader.execute();
+    }
+
+    /**
+     * Cancels loading the subpackages of this node and of its loaded
+     * descendants. Loading starts over when
+     * {@link #loadChildren(DefaultTreeModel)} is called again.
+     * 
+     * @since 2.1.0
+     */
+    public void cancelLoading() {
+        if (loader != null) {
+            SwingWorker<?, ?> cancelled = loader;
+            loader = null;
+            cancelled.cancel(true);
+        }
+        if (subNodes != null) {
+            for (PackageTreeNode subNode : subNodes) {
+                subNode.cancelLoading();
+            }
+        }
+    }
+
+    /**
+     * Determines whether the subpackages of this node have been loaded.
+     * 
+     * @return {@code true} if the subpackages are loaded
+     * 
+     * @since 2.1.0
+     */
+    public boolean isLoaded() {
+        return subNodes != null;
+    }
+
+    /**
+     * Determines whether this node is the placeholder shown while the
+     * subpackages of its parent are loading. A placeholder does not represent
+     * a package.
+     * 
+     * @return {@code true} if this node is a placeholder
+     * 
+     * @since 2.1.0
+     */
+    public boolean isPlaceholder() {
+        return dir == null;
     }
 
     /**
@@ -90,7 +237,7 @@ public class PackageTreeNode implements TreeNode {
      */
     @Override
     public PackageTreeNode getChildAt(int childIndex) throws IndexOutOfBoundsException {
-        return subNodes.get(childIndex);
+        return shownNodes().get(childIndex);
     }
 
     /**
@@ -100,7 +247,7 @@ public class PackageTreeNode implements TreeNode {
      */
     @Override
     public int getChildCount() {
-        return subNodes.size();
+        return shownNodes().size();
     }
 
     /**
@@ -125,7 +272,7 @@ public class PackageTreeNode implements TreeNode {
     public int getIndex(TreeNode node) {
         if (node == null)
             return -1;
-        return subNodes.indexOf(node);
+        return shownNodes().indexOf(node);
     }
 
     /** {@inheritDoc} */
@@ -141,7 +288,7 @@ public class PackageTreeNode implements TreeNode {
      */
     @Override
     public boolean isLeaf() {
-        return subNodes.isEmpty();
+        return shownNodes().isEmpty();
     }
 
     /**
@@ -151,13 +298,19 @@ public class PackageTreeNode implements TreeNode {
      */
     @Override
     public Enumeration<PackageTreeNode> children() {
-        return Collections.enumeration(subNodes);
+        return Collections.enumeration(shownNodes());
+    }
+
+    /** Returns the subpackages, or the placeholder if they are not loaded. */
+    private List<PackageTreeNode> shownNodes() {
+        return subNodes != null ? subNodes : Collections.singletonList(placeholder);
     }
 
     /**
      * Returns the directory that this node represents.
      * 
-     * @return the directory that this node represents
+     * @return the directory that this node represents, or {@code null} if this
+     *         node is a placeholder
      */
     public File getDirectory() {
         return dir;
@@ -197,6 +350,9 @@ public class PackageTreeNode implements TreeNode {
      */
     @Override
     public String toString() {
+        if (isPlaceholder()) {
+            return PLACEHOLDER_LABEL;
+        }
         return dir.getName() + File.separator;
     }
 }
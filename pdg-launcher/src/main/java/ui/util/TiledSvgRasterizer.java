@@ -0,0 +1,204 @@
+/*
+ * This file is part of the Project-Diagram-Generator distribution
+ * (https://github.com/syoon2/Project-Diagram-Generator).
+ * Copyright (c) 2024 Sung Ho Yoon.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package ui.util;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import image.SvgRasterizer;
+
+/**
+ * Rasterizes SVG images with Batik, a strip of rows at a time.
+ * <p>
+ * The image is painted into a buffer covering only a few rows at once, and
+ * each strip is compressed into the PNG file before the next one is painted.
+ * Memory use therefore depends on the width of the image and on the strip
+ * size, not on the size of the whole image, so that diagrams too large to fit
+ * into a single bitmap can still be exported.
+ *
+ * @since 2.1.0
+ */
+public class TiledSvgRasterizer implements SvgRasterizer {
+
+    /** Default maximum number of pixels painted at once. */
+    public static final int DEFAULT_STRIP_PIXELS = 1 << 22;
+
+    /** Maximum number of rows painted at once. */
+    private static final int MAX_STRIP_HEIGHT = 256;
+    /** Maximum size of a single IDAT chunk. */
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    /** 8-bit RGBA, the layout of {@link BufferedImage#TYPE_INT_ARGB}. */
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    private final int stripPixels;
+
+    /**
+     * Constructs a new {@code TiledSvgRasterizer} that paints at most
+     * {@value #DEFAULT_STRIP_PIXELS} pixels at once.
+     */
+    public TiledSvgRasterizer() {
+        this(DEFAULT_STRIP_PIXELS);
+    }
+
+    /**
+     * Constructs a new {@code TiledSvgRasterizer}.
+     *
+     * @param stripPixels the maximum number of pixels painted at once; at least
+     *                    one row is always painted
+     * @throws IllegalArgumentException if {@code stripPixels} is not positive
+     */
+    public TiledSvgRasterizer(int stripPixels) {
+        if (stripPixels < 1) {
+            throw new IllegalArgumentException("Invalid strip size: " + stripPixels);
+        }
+        this.stripPixels = stripPixels;
+    }
+
+    @Override
+    public void rasterize(File svg, File png) throws IOException {
+        try (BatikScene scene = new BatikScene(svg);
+                OutputStream out = new BufferedOutputStream(new FileOutputStream(png))) {
+            write(scene, out);
+        }
+    }
+
+    /** Paints the image strip by strip and writes it out as a PNG stream. */
+    private void write(BatikScene scene, OutputStream out) throws IOException {
+        int width = scene.getWidth();
+        int height = scene.getHeight();
+        int stripHeight = Math.max(1, Math.min(MAX_STRIP_HEIGHT, Math.min(height, stripPixels / width)));
+        BufferedImage strip = new BufferedImage(width, stripHeight, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) strip.getRaster().getDataBuffer()).getData();
+        // Filter type byte, then the pixels of one row
+        byte[] row = new byte[1 + 4 * width];
+
+        out.write(PNG_SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.writeByte(8);
+        headerData.writeByte(COLOR_TYPE_RGBA);
+        // Deflate compression, adaptive filtering, no interlacing
+        headerData.writeByte(0);
+        headerData.writeByte(0);
+        headerData.writeByte(0);
+        writeChunk(out, "IHDR", header.toByteArray(), header.size());
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try (DeflaterOutputStream idat = new DeflaterOutputStream(new ChunkOutputStream(out), deflater)) {
+            for (int top = 0; top < height; top += stripHeight) {
+                Arrays.fill(pixels, 0);
+                Graphics2D g = strip.createGraphics();
+                try {
+                    g.translate(0, -top);
+                    g.clipRect(0, top, width, stripHeight);
+                    scene.paint(g);
+                } finally {
+                    g.dispose();
+                }
+                int rows = Math.min(stripHeight, height - top);
+                for (int y = 0; y < rows; y++) {
+                    int i = 1;
+                    for (int x = 0; x < width; x++) {
+                        int argb = pixels[y * width + x];
+                        row[i++] = (byte) (argb >>> 16);
+                        row[i++] = (byte) (argb >>> 8);
+                        row[i++] = (byte) argb;
+                        row[i++] = (byte) (argb >>> 24);
+                    }
+                    idat.write(row);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        writeChunk(out, "IEND", new byte[0], 0);
+    }
+
+    private static void writeChunk(OutputStream out, String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        DataOutputStream chunk = new DataOutputStream(out);
+        chunk.writeInt(length);
+        chunk.write(typeBytes);
+        chunk.write(data, 0, length);
+        chunk.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Splits the compressed image data into IDAT chunks. Closing this stream
+     * writes the last chunk but does not close the underlying stream.
+     */
+    private static class ChunkOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int count;
+
+        ChunkOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                writeBuffer();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    writeBuffer();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (count > 0) {
+                writeBuffer();
+            }
+        }
+
+        private void writeBuffer() throws IOException {
+            writeChunk(out, "IDAT", buffer, count);
+            count = 0;
+        }
+    }
+}
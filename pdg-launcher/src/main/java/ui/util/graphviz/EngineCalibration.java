@@ -0,0 +1,197 @@
+/*
+ * This file is part of the Project-Diagram-Generator distribution
+ * (https://github.com/syoon2/Project-Diagram-Generator).
+ * Copyright (c) 2024 Sung Ho Yoon.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ui.util.graphviz;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.logging.log4j.*;
+
+import guru.nidi.graphviz.engine.*;
+import image.DotDigest;
+
+/**
+ * Orders Graphviz engines by how fast they render on this machine.
+ * <p>
+ * Each engine renders a small reference graph once right after it is set up
+ * (the cold start, which includes loading the engine) and then a few more
+ * times (the steady state). Engines are ordered by steady-state latency, then
+ * by cold-start latency; engines that fail go last. The measurements are
+ * saved per machine and JVM, so calibration only runs again if the set of
+ * engines changes, an engine failed to render last time or recalibration is
+ * requested.
+ *
+ * @since 2.1.0
+ */
+final class EngineCalibration {
+
+    /** Number of renders whose median is the steady-state latency. */
+    private static final int STEADY_RUNS = 5;
+    /** Reference graph, shaped like a small class diagram. */
+    private static final String REFERENCE_GRAPH = referenceGraph();
+
+    private static Logger logger = LogManager.getLogger();
+
+    private final File file;
+    private final String key;
+
+    /**
+     * Constructs a new {@code EngineCalibration}.
+     *
+     * @param file the file the measurements are saved in
+     */
+    EngineCalibration(File file) {
+        this.file = file;
+        this.key = hostKey();
+    }
+
+    /**
+     * Orders engines by their measured performance, calibrating if needed.
+     *
+     * @param candidates  the engine factories by name, in default priority order
+     * @param recalibrate whether to measure even if results are saved
+     * @return the engine names, fastest first
+     */
+    List<String> order(Map<String, Supplier<GraphvizEngine>> candidates, boolean recalibrate) {
+        Properties saved = load();
+        boolean complete = true;
+        for (String name : candidates.keySet()) {
+            complete &= latency(saved, name, "steady") != Long.MAX_VALUE;
+        }
+        if (recalibrate || !complete) {
+            logger.info("Calibrating Graphviz engines");
+            for (Map.Entry<String, Supplier<GraphvizEngine>> candidate : candidates.entrySet()) {
+                measure(candidate.getKey(), candidate.getValue(), saved);
+            }
+            save(saved);
+        }
+        List<String> order = new ArrayList<>(candidates.keySet());
+        // Stable, so ties keep the default priority
+        order.sort(Comparator.<String>comparingLong(name -> latency(saved, name, "steady"))
+                .thenComparingLong(name -> latency(saved, name, "cold")));
+        logger.info("Graphviz engine order: {}", order);
+        return order;
+    }
+
+    private void measure(String name, Supplier<GraphvizEngine> factory, Properties saved) {
+        // A failure is not saved, so that the engine is measured again on the
+        // next start rather than ranked last for good
+        saved.remove(prefix(name) + "cold");
+        saved.remove(prefix(name) + "steady");
+        long cold;
+        long steady;
+        try {
+            long start = System.nanoTime();
+            Graphviz.useEngine(factory.get());
+            render();
+            cold = millisSince(start);
+            long[] runs = new long[STEADY_RUNS];
+            for (int i = 0; i < runs.length; i++) {
+                start = System.nanoTime();
+                render();
+                runs[i] = millisSince(start);
+            }
+            Arrays.sort(runs);
+            steady = runs[runs.length / 2];
+            logger.info("Engine {}: cold start {} ms, steady state {} ms", name, cold, steady);
+        } catch (RuntimeException e) {
+            logger.info("Engine " + name + " failed calibration", e);
+            return;
+        } finally {
+            Graphviz.releaseEngine();
+        }
+        saved.setProperty(prefix(name) + "cold", Long.toString(cold));
+        saved.setProperty(prefix(name) + "steady", Long.toString(steady));
+    }
+
+    private static void render() {
+        if (Graphviz.fromString(REFERENCE_GRAPH).render(Format.SVG).toString().isEmpty()) {
+            throw new GraphvizException("Empty render");
+        }
+    }
+
+    private long latency(Properties saved, String name, String kind) {
+        try {
+            return Long.parseLong(saved.getProperty(prefix(name) + kind, Long.toString(Long.MAX_VALUE)));
+        } catch (NumberFormatException nfe) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private String prefix(String name) {
+        return key + '.' + name + '.';
+    }
+
+    private Properties load() {
+        Properties props = new Properties();
+        if (file.isFile()) {
+            try (Reader in = Files.newBufferedReader(file.toPath())) {
+                props.load(in);
+            } catch (IOException ioe) {
+                logger.warn("Unable to read " + file, ioe);
+            }
+        }
+        return props;
+    }
+
+    private void save(Properties props) {
+        try {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+            try (Writer out = Files.newBufferedWriter(file.toPath())) {
+                props.store(out, "Graphviz engine latencies in milliseconds, per machine and JVM");
+            }
+        } catch (IOException ioe) {
+            logger.warn("Unable to write " + file, ioe);
+        }
+    }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /** Identifies this machine and JVM. */
+    private static String hostKey() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException ioe) {
+            host = "unknown";
+        }
+        String id = String.join("\n", host, SystemUtils.OS_NAME, SystemUtils.OS_ARCH,
+                Integer.toString(Runtime.getRuntime().availableProcessors()), SystemUtils.JAVA_VM_VENDOR,
+                SystemUtils.JAVA_VM_NAME, SystemUtils.JAVA_VM_VERSION);
+        return DotDigest.of(id).substring(0, 16);
+    }
+
+    private static String referenceGraph() {
+        StringBuilder sb = new StringBuilder("digraph G {\n\tnode[shape=record,style=filled,fillcolor=gray95];\n");
+        for (int i = 0; i < 12; i++) {
+            sb.append("\tn").append(i).append("[label=\"{Class").append(i)
+                    .append("|- field : int\\l|+ method() : void\\l}\"];\n");
+        }
+        for (int i = 1; i < 12; i++) {
+            sb.append("\tn").append(i).append(" -> n").append((i - 1) / 2).append(";\n");
+        }
+        return sb.append("}\n").toString();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is part of the Project-Diagram-Generator distribution
+ * (https://github.com/syoon2/Project-Diagram-Generator).
+ * Copyright (c) 2024 Sung Ho Yoon.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package ui.util.graphviz;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
+
+import guru.nidi.graphviz.engine.*;
+
+/**
+ * Provides an implementation of {@link JavascriptEngine} that uses
+ * <a href="https://www.graalvm.org/javascript/">GraalJS</a>.
+ * <p>
+ * Every instance has a context of its own, but all contexts are created from
+ * one shared polyglot {@link Engine}, and viz.js is parsed into a
+ * {@link Source} once. New contexts therefore reuse the code already compiled,
+ * and the profiles gathered, by earlier ones. Other scripts, such as the
+ * render calls that carry the graph, are evaluated without being cached.
+ * 
+ * @since 2.1.0
+ */
+public class GraalStandaloneEngine extends AbstractJavascriptEngine {
+
+    /**
+     * Scripts at least this long are large enough to be viz.js. Only the first
+     * such script evaluated in a context is taken to be viz.js, as it is
+     * loaded before anything is rendered.
+     */
+    private static final int BOOTSTRAP_LENGTH = 64 * 1024;
+
+    /** The shared viz.js source; {@code null} until first loaded. */
+    private static volatile Source bootstrap;
+
+    /** The shared polyglot engine; {@code null} until first used. */
+    private static Engine engine;
+
+    private final Context context;
+    private final ResultHandler resultHandler = new ResultHandler();
+    /** Whether viz.js was loaded into this context. */
+    private boolean bootstrapped;
+
+    /**
+     * Constructs a new {@code GraalStandaloneEngine}.
+     * 
+     * @throws MissingDependencyException if GraalJS is not available
+     */
+    public GraalStandaloneEngine() {
+        context = Context.newBuilder("js").engine(sharedEngine()).allowAllAccess(true).build();
+        context.getPolyglotBindings().putMember("handler", resultHandler);
+        eval("function result(r){ Polyglot.import('handler').setResult(r); }"
+                + "function error(r){ Polyglot.import('handler').setError(r); }"
+                + "function log(r){ Polyglot.import('handler').log(r); }");
+    }
+
+    /**
+     * Checks whether GraalJS is available.
+     * 
+     * @return {@code true} if instances can be constructed
+     */
+    public static boolean isAvailable() {
+        try {
+            sharedEngine();
+            return true;
+        } catch (RuntimeException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static synchronized Engine sharedEngine() {
+        if (engine == null) {
+            Engine created = Engine.create();
+            if (!created.getLanguages().containsKey("js")) {
+                created.close();
+                throw new MissingDependencyException("GraalJS is not available", "org.graalvm.js:js");
+            }
+            engine = created;
+        }
+        return engine;
+    }
+
+    /**
+     * Executes the specified Javascript snippet.
+     * 
+     * @param js a Javascript snippet
+     * @throws GraphvizException if there is a problem executing the argument
+     */
+    @Override
+    protected String execute(String js) {
+        eval(js);
+        return resultHandler.waitFor();
+    }
+
+    private void eval(String js) {
+        try {
+            if (!bootstrapped && js.length() >= BOOTSTRAP_LENGTH) {
+                bootstrapped = true;
+                context.eval(bootstrapSource(js));
+            } else {
+                context.eval("js", js);
+            }
+        } catch (PolyglotException e) {
+            throw new GraphvizException("Problem executing javascript", e);
+        }
+    }
+
+    /**
+     * Returns the shared viz.js source, or an uncached one if the specified
+     * code differs from the shared source.
+     */
+    private static Source bootstrapSource(String js) {
+        synchronized (GraalStandaloneEngine.class) {
+            if (bootstrap == null) {
+                bootstrap = Source.newBuilder("js", js, "viz.js").cached(true).buildLiteral();
+                return bootstrap;
+            }
+        }
+        Source shared = bootstrap;
+        if (js.contentEquals(shared.getCharacters())) {
+            return shared;
+        }
+        return Source.newBuilder("js", js, "graphviz.js").cached(false).buildLiteral();
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -18,83 +18,41 @@
 
 package ui.util.graphviz;
 
-import java.lang.reflect.*;
-import java.util.*;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Supplier;
-
-import org.apache.commons.lang3.reflect.*;
-import org.apache.logging.log4j.*;
-
-import guru.nidi.graphviz.engine.*;
-
 /**
  * Sets up Graphviz engines, including the builtin engines and
- * the {@link JSGraphvizEngine Nashorn standalone engine}.
- * 
- * @see Graphviz#useEngine(GraphvizEngine, GraphvizEngine...)
+ * the {@link JSGraphvizEngine Nashorn standalone engine}, when this class is
+ * loaded.
  * 
  * @author Sung Ho Yoon
  * 
  * @since 2.0.2
+ * @deprecated Loading this class blocks until the engines are set up. Use
+ *             {@link GraphvizEngineSetup#initialize()} instead, which sets
+ *             them up in the background.
  */
+@Deprecated(since = "2.1.0")
 public class GraphvizEngineInitializer {
 
-    private static Logger logger = LogManager.getLogger();
-
     private GraphvizEngineInitializer() {
     }
 
-    public static final boolean GRAPHVIZ_AVAILABLE = setupGraphvizEngines();
+    /**
+     * Whether there is at least one engine available for use.
+     * 
+     * @deprecated Use {@link GraphvizEngineSetup#initialize()} instead.
+     */
+    @Deprecated(since = "2.1.0")
+    public static final boolean GRAPHVIZ_AVAILABLE = GraphvizEngineSetup.initialize().join();
 
     /**
-     * Attempts to set up {@link GraphvizCmdLineEngine CMD line engine}, Graal-based
-     * engine, and
-     * {@link NashornGraphvizEngine Nashorn-based engine}.
+     * Attempts to set up the Graphviz engines on the calling thread.
      * 
      * @return {@code true} if there is at least one engine available for use
+     * @deprecated Use {@link GraphvizEngineSetup#initialize()} instead.
+     * @see GraphvizEngineSetup#setupGraphvizEngines()
      */
-    @SuppressWarnings("resource")
+    @Deprecated(since = "2.1.0")
     public static boolean setupGraphvizEngines() {
-        List<GraphvizEngine> engines = new ArrayList<>();
-        try {
-            boolean cmdLineEngineAvailable = (boolean) FieldUtils.readStaticField(
-                    GraphvizCmdLineEngine.class, "AVAILABLE", true);
-            if (cmdLineEngineAvailable) {
-                engines.add(new GraphvizCmdLineEngine().timeout(10, TimeUnit.MINUTES));
-            }
-        } catch (ReflectiveOperationException ref) {
-            logger.info("CMD line engine is not available", ref);
-        }
-        try {
-            Method graalEngineGetter = MethodUtils.getMatchingMethod(GraphvizJdkEngine.class, "tryGraal");
-            graalEngineGetter.setAccessible(true);
-            if (Objects.nonNull(graalEngineGetter.invoke(null))) {
-                Supplier<JavascriptEngine> graalEngineSupplier = () -> {
-                    try {
-                        return (JavascriptEngine) graalEngineGetter.invoke(null);
-                    } catch (ReflectiveOperationException e) {
-                        return null;
-                    }
-                };
-                engines.add(new AbstractJsGraphvizEngine(false, graalEngineSupplier) {
-                });
-            } else {
-                logger.info("Graal engine is not available");
-            }
-        } catch (Exception e) {
-            logger.info("Graal engine is not available", e);
-        }
-        try {
-            engines.add(new NashornGraphvizEngine());
-        } catch (MissingDependencyException mis) {
-            logger.info("Nashorn engine is not available", mis);
-        }
-        if (engines.isEmpty()) {
-            logger.error("No Graphviz engine available. Diagram will not be generated.");
-            return false;
-        }
-        Graphviz.useEngine(engines);
-        return true;
+        return GraphvizEngineSetup.setupGraphvizEngines();
     }
 }
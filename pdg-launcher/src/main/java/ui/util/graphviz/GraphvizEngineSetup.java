@@ -0,0 +1,187 @@
+/*
+ * This file is part of the Project-Diagram-Generator distribution
+ * (https://github.com/syoon2/Project-Diagram-Generator).
+ * Copyright (c) 2024 Sung Ho Yoon.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ui.util.graphviz;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.commons.lang3.reflect.*;
+import org.apache.logging.log4j.*;
+
+import guru.nidi.graphviz.engine.*;
+import image.ConvertVisual;
+
+/**
+ * Sets up Graphviz engines, including the builtin engines and
+ * the {@link JSGraphvizEngine Nashorn standalone engine}. Setup is started
+ * with {@link #initialize()} and runs in the background.
+ * 
+ * @see Graphviz#useEngine(GraphvizEngine, GraphvizEngine...)
+ * 
+ * @since 2.1.0
+ */
+public final class GraphvizEngineSetup {
+
+    private static Logger logger = LogManager.getLogger();
+
+    private GraphvizEngineSetup() {
+    }
+
+    /**
+     * Number of Javascript engines kept ready to render at the same time. Set
+     * with the {@code pdg.graphviz.engines} system property; defaults to the
+     * number of processors, up to 4. If 1, renders with a Javascript engine are
+     * not run concurrently.
+     * 
+     * @since 2.1.0
+     */
+    public static final int POOL_SIZE = Math.max(1,
+            Integer.getInteger("pdg.graphviz.engines", Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+    /** File the engine calibration results are saved in. */
+    private static final String ADDRESS_CALIBRATION = SystemUtils.USER_HOME + File.separator + ".pdg"
+            + File.separator + "engine-calibration.properties";
+
+    /** Graph rendered to wait for the engines to be set up. */
+    private static final String WARM_UP_GRAPH = "digraph { a -> b }";
+
+    /** Engine setup, once started. */
+    private static CompletableFuture<Boolean> initialization;
+
+    /**
+     * Starts setting up the Graphviz engines on a background thread, unless
+     * that has already been started.
+     * <p>
+     * The returned future completes once the preferred engine can render,
+     * including any Javascript warm-up, so the first diagram does not pay for
+     * it. It completes with {@code false} if no engine is available.
+     * 
+     * @return the result of {@link #setupGraphvizEngines()}
+     * 
+     * @since 2.1.0
+     */
+    public static synchronized CompletableFuture<Boolean> initialize() {
+        if (initialization == null) {
+            initialization = new CompletableFuture<>();
+            Thread t = new Thread(() -> {
+                try {
+                    initialization.complete(setupGraphvizEngines() && warmUp());
+                } catch (Throwable e) {
+                    logger.error("Unable to set up Graphviz engines", e);
+                    initialization.complete(false);
+                }
+            }, "graphviz-init");
+            t.setDaemon(true);
+            t.start();
+        }
+        return initialization;
+    }
+
+    /** Waits for the preferred engine to be ready by rendering a trivial graph. */
+    private static boolean warmUp() {
+        try {
+            Graphviz.fromString(WARM_UP_GRAPH).render(Format.SVG).toString();
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("No Graphviz engine could be set up. Diagram will not be generated.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Attempts to set up {@link GraphvizCmdLineEngine CMD line engine}, Graal-based
+     * engine, and
+     * {@link NashornGraphvizEngine Nashorn-based engine}. If {@link #POOL_SIZE}
+     * is greater than 1, the Javascript engines are
+     * {@link PooledJSGraphvizEngine pooled}.
+     * <p>
+     * If more than one engine is available, they are tried in the order of
+     * their measured performance on this machine. The measurements are saved,
+     * and are taken again if the {@code pdg.graphviz.recalibrate} system
+     * property is {@code true}; calibration is skipped altogether if
+     * {@code pdg.graphviz.calibrate} is {@code false}.
+     * 
+     * @return {@code true} if there is at least one engine available for use
+     */
+    public static boolean setupGraphvizEngines() {
+        Map<String, Supplier<GraphvizEngine>> candidates = candidates(POOL_SIZE);
+        if (candidates.isEmpty()) {
+            logger.error("No Graphviz engine available. Diagram will not be generated.");
+            return false;
+        }
+        List<String> order = new ArrayList<>(candidates.keySet());
+        if (candidates.size() > 1 && !"false".equalsIgnoreCase(System.getProperty("pdg.graphviz.calibrate"))) {
+            order = new EngineCalibration(new File(ADDRESS_CALIBRATION))
+                    .order(candidates(1), Boolean.getBoolean("pdg.graphviz.recalibrate"));
+        }
+        List<GraphvizEngine> engines = new ArrayList<>();
+        for (String name : order) {
+            try {
+                engines.add(candidates.get(name).get());
+            } catch (MissingDependencyException mis) {
+                logger.info("Engine " + name + " is not available", mis);
+            }
+        }
+        if (engines.isEmpty()) {
+            logger.error("No Graphviz engine available. Diagram will not be generated.");
+            return false;
+        }
+        Graphviz.useEngine(engines);
+        ConvertVisual.assignConcurrentEngine(POOL_SIZE > 1);
+        return true;
+    }
+
+    /**
+     * Finds the available engines.
+     * 
+     * @param poolSize the number of engines to pool for Javascript engines
+     * @return a factory for each available engine, by name, in default
+     *         priority order
+     */
+    @SuppressWarnings("resource")
+    private static Map<String, Supplier<GraphvizEngine>> candidates(int poolSize) {
+        Map<String, Supplier<GraphvizEngine>> engines = new LinkedHashMap<>();
+        try {
+            boolean cmdLineEngineAvailable = (boolean) FieldUtils.readStaticField(
+                    GraphvizCmdLineEngine.class, "AVAILABLE", true);
+            if (cmdLineEngineAvailable) {
+                engines.put("cmdline", () -> new GraphvizCmdLineEngine().timeout(10, TimeUnit.MINUTES));
+            }
+        } catch (ReflectiveOperationException ref) {
+            logger.info("CMD line engine is not available", ref);
+        }
+        try {
+            if (GraalStandaloneEngine.isAvailable()) {
+                engines.put("graal",
+                        () -> poolSize > 1 ? PooledJSGraphvizEngine.graal(poolSize) : new GraalGraphvizEngine());
+            } else {
+                logger.info("Graal engine is not available");
+            }
+        } catch (LinkageError e) {
+            logger.info("Graal engine is not available", e);
+        }
+        engines.put("nashorn",
+                () -> poolSize > 1 ? PooledJSGraphvizEngine.nashorn(poolSize) : new NashornGraphvizEngine());
+        return engines;
+    }
+}
@@ -18,8 +18,15 @@
 
 package ui.util.graphviz;
 
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
 import javax.script.*;
 
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.logging.log4j.*;
+
 import guru.nidi.graphviz.engine.*;
 
 /**
@@ -30,25 +37,98 @@ import guru.nidi.graphviz.engine.*;
  * @since 2.0.2
  */
 public class NashornStandaloneEngine extends AbstractJavascriptEngine {
-    private static final ScriptEngine ENGINE = new ScriptEngineManager().getEngineByName("nashorn");
+    /**
+     * The default directory of the persistent code cache, which holds the
+     * compiled viz.js across launches. Can be overridden with the
+     * {@code pdg.nashorn.cache.dir} system property; an empty value disables
+     * the cache.
+     * 
+     * @since 2.1.0
+     */
+    public static final String ADDRESS_CODE_CACHE = SystemUtils.USER_HOME + File.separator + ".pdg"
+            + File.separator + "nashorn-cache";
+
+    private static Logger logger = LogManager.getLogger();
+
+    private static final ScriptEngineManager MANAGER;
+    static {
+        configureNashorn();
+        MANAGER = new ScriptEngineManager();
+    }
+    private static final ScriptEngine ENGINE = MANAGER.getEngineByName("nashorn");
+    private final ScriptEngine engine;
     private final ScriptContext context = new SimpleScriptContext();
     private final ResultHandler resultHandler = new ResultHandler();
 
     /**
-     * Constructs a new {@code NashornStandaloneEngine}.
+     * Constructs a new {@code NashornStandaloneEngine}. All instances
+     * constructed this way share one script engine.
      * 
      * @throws MissingDependencyException if the Nashorn engine is not available
      */
     public NashornStandaloneEngine() {
-        if (ENGINE == null) {
+        this(ENGINE);
+    }
+
+    private NashornStandaloneEngine(ScriptEngine engine) {
+        if (engine == null) {
             throw new MissingDependencyException("Nashorn engine is not available", "org.openjdk.nashorn:nashorn-core");
         }
+        this.engine = engine;
         context.getBindings(ScriptContext.ENGINE_SCOPE).put("handler", resultHandler);
         eval("function result(r){ handler.setResult(r); }"
                 + "function error(r){ handler.setError(r); }"
                 + "function log(r){ handler.log(r); }");
     }
 
+    /**
+     * Constructs a new {@code NashornStandaloneEngine} with a script engine of
+     * its own, so that it can run at the same time as other instances.
+     * 
+     * @return a new engine
+     * @throws MissingDependencyException if the Nashorn engine is not available
+     * 
+     * @since 2.1.0
+     */
+    public static NashornStandaloneEngine dedicated() {
+        return new NashornStandaloneEngine(MANAGER.getEngineByName("nashorn"));
+    }
+
+    /**
+     * Passes the code cache and optimistic type settings to Nashorn, which
+     * reads them when a script engine is created. Each system property is only
+     * set when it is unset, so values given on the command line, such as
+     * {@code -Dnashorn.args} or {@code -Dnashorn.persistent.code.cache}, take
+     * precedence. Optimistic types speed up long-running scripts at the cost of
+     * compile time, so they are off unless the {@code pdg.nashorn.optimistic}
+     * system property is {@code true}.
+     */
+    private static void configureNashorn() {
+        boolean cache = false;
+        if (System.getProperty("nashorn.persistent.code.cache") != null) {
+            cache = true;
+        } else {
+            String dir = System.getProperty("pdg.nashorn.cache.dir", ADDRESS_CODE_CACHE);
+            if (!dir.isEmpty()) {
+                try {
+                    Files.createDirectories(Paths.get(dir));
+                    System.setProperty("nashorn.persistent.code.cache", dir);
+                    cache = true;
+                } catch (IOException | InvalidPathException e) {
+                    logger.warn("Unable to use Nashorn code cache " + dir, e);
+                }
+            }
+        }
+        if (System.getProperty("nashorn.args") == null) {
+            List<String> args = new ArrayList<>();
+            if (cache) {
+                args.add("--persistent-code-cache=true");
+            }
+            args.add("--optimistic-types=" + Boolean.getBoolean("pdg.nashorn.optimistic"));
+            System.setProperty("nashorn.args", String.join(" ", args));
+        }
+    }
+
     /**
      * Executes the specified Javascript snippet.
      * 
@@ -63,7 +143,7 @@ public class NashornStandaloneEngine extends AbstractJavascriptEngine {
 
     private void eval(String js) {
         try {
-            ENGINE.eval(js, context);
+            engine.eval(js, context);
         } catch (ScriptException e) {
             throw new GraphvizException("Problem executing javascript", e);
         }
@@ -0,0 +1,267 @@
+/*
+ * This file is part of the Project-Diagram-Generator distribution
+ * (https://github.com/syoon2/Project-Diagram-Generator).
+ * Copyright (c) 2024 Sung Ho Yoon.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ui.util.graphviz;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.*;
+
+import guru.nidi.graphviz.engine.*;
+import guru.nidi.graphviz.rasterizer.Rasterizer;
+
+/**
+ * Implementation of {@link GraphvizEngine} that renders with a pool of
+ * Javascript engines, each with a context of its own and viz.js already
+ * loaded. Every render leases an idle engine, so as many graphs as there are
+ * engines can be rendered at once without loading viz.js again.
+ * <p>
+ * The first engine is set up when this engine is initialized; the others are
+ * set up on a background thread. An engine whose render fails is checked by
+ * rendering a trivial graph, and replaced if that fails as well.
+ *
+ * @since 2.1.0
+ */
+public class PooledJSGraphvizEngine extends AbstractJsGraphvizEngine {
+
+    /** Graph rendered to check whether an engine still works. */
+    private static final String PROBE = "digraph { a -> b }";
+    /** Time between checks for a working engine while waiting for a lease. */
+    private static final long LEASE_POLL_SECONDS = 1;
+
+    private static Logger logger = LogManager.getLogger();
+
+    private final int size;
+    private final boolean promisePolyfill;
+    private final Supplier<JavascriptEngine> engineSupplier;
+    private final BlockingQueue<JavascriptEngine> idle;
+    private final ExecutorService warmer;
+    /** The engine leased by the current thread, if any. */
+    private final ThreadLocal<JavascriptEngine> leased = new ThreadLocal<>();
+    /** Number of engines that are set up or being set up. */
+    private final AtomicInteger live = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new {@code PooledJSGraphvizEngine}.
+     *
+     * @param size            the number of Javascript engines
+     * @param promisePolyfill whether the Javascript engines need a
+     *                        {@code Promise} implementation
+     * @param engineSupplier  supplies a new Javascript engine on each call
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @throws NullPointerException     if {@code engineSupplier} is {@code null}
+     */
+    public PooledJSGraphvizEngine(int size, boolean promisePolyfill, Supplier<JavascriptEngine> engineSupplier) {
+        super(false, engineSupplier);
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid pool size: " + size);
+        }
+        this.size = size;
+        this.promisePolyfill = promisePolyfill;
+        this.engineSupplier = Objects.requireNonNull(engineSupplier);
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.warmer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "graphviz-warmup");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Constructs a new {@code PooledJSGraphvizEngine} backed by
+     * {@link NashornStandaloneEngine#dedicated() Nashorn engines}.
+     *
+     * @param size the number of Javascript engines
+     * @return a new engine
+     * @throws IllegalArgumentException if {@code size} is not positive
+     */
+    public static PooledJSGraphvizEngine nashorn(int size) {
+        return new PooledJSGraphvizEngine(size, true, NashornStandaloneEngine::dedicated);
+    }
+
+    /**
+     * Constructs a new {@code PooledJSGraphvizEngine} backed by
+     * {@link GraalStandaloneEngine GraalJS engines}.
+     *
+     * @param size the number of Javascript engines
+     * @return a new engine
+     * @throws IllegalArgumentException if {@code size} is not positive
+     */
+    public static PooledJSGraphvizEngine graal(int size) {
+        return new PooledJSGraphvizEngine(size, false, GraalStandaloneEngine::new);
+    }
+
+    @Override
+    protected void doInit() {
+        // Fails initialization if the engines cannot be set up at all
+        live.incrementAndGet();
+        try {
+            idle.add(warm());
+        } catch (RuntimeException e) {
+            live.decrementAndGet();
+            throw e;
+        }
+        for (int i = 1; i < size; i++) {
+            replenish();
+        }
+    }
+
+    @Override
+    public EngineResult execute(String src, Options options, Rasterizer rasterizer) {
+        if (leased.get() != null) {
+            // Called while setting up an engine
+            return super.execute(src, options, rasterizer);
+        }
+        JavascriptEngine engine = lease();
+        leased.set(engine);
+        boolean healthy = true;
+        try {
+            return super.execute(src, options, rasterizer);
+        } catch (RuntimeException e) {
+            healthy = probe();
+            throw e;
+        } finally {
+            leased.remove();
+            if (healthy && !closed) {
+                idle.add(engine);
+            } else {
+                live.decrementAndGet();
+                closeQuietly(engine);
+                if (!closed) {
+                    logger.warn("Replacing broken Javascript engine");
+                    replenish();
+                }
+            }
+        }
+    }
+
+    @Override
+    protected JavascriptEngine engine() {
+        JavascriptEngine engine = leased.get();
+        if (engine == null) {
+            throw new IllegalStateException("No Javascript engine leased by this thread");
+        }
+        return engine;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        warmer.shutdownNow();
+        List<JavascriptEngine> engines = new ArrayList<>();
+        idle.drainTo(engines);
+        for (JavascriptEngine engine : engines) {
+            live.decrementAndGet();
+            closeQuietly(engine);
+        }
+    }
+
+    /**
+     * Returns the number of engines that are ready to render.
+     *
+     * @return the number of idle engines
+     */
+    public int getNumberIdle() {
+        return idle.size();
+    }
+
+    /**
+     * Returns the number of Javascript engines in this pool.
+     *
+     * @return the pool size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /** Sets up a new Javascript engine with viz.js loaded. */
+    private JavascriptEngine warm() {
+        JavascriptEngine engine = engineSupplier.get();
+        leased.set(engine);
+        try {
+            if (promisePolyfill) {
+                engine.executeJavascript(promiseJsCode());
+            }
+            super.doInit();
+            return engine;
+        } catch (RuntimeException e) {
+            closeQuietly(engine);
+            throw e;
+        } finally {
+            leased.remove();
+        }
+    }
+
+    /** Sets up a new Javascript engine in the background. */
+    private void replenish() {
+        live.incrementAndGet();
+        try {
+            warmer.execute(() -> {
+                try {
+                    idle.add(warm());
+                } catch (RuntimeException e) {
+                    live.decrementAndGet();
+                    logger.warn("Unable to set up Javascript engine", e);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            // Closed in the meantime
+            live.decrementAndGet();
+        }
+    }
+
+    /** Checks whether the engine leased by the current thread still works. */
+    private boolean probe() {
+        try {
+            super.execute(PROBE, Options.create(), null);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private JavascriptEngine lease() {
+        try {
+            while (!closed) {
+                JavascriptEngine engine = idle.poll(LEASE_POLL_SECONDS, TimeUnit.SECONDS);
+                if (engine != null) {
+                    return engine;
+                }
+                if (live.get() == 0) {
+                    throw new GraphvizException("No working Javascript engine left");
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new GraphvizException("Interrupted while waiting for a Javascript engine", ie);
+        }
+        throw new GraphvizException("Engine is closed");
+    }
+
+    private static void closeQuietly(JavascriptEngine engine) {
+        try {
+            engine.close();
+        } catch (Exception e) {
+            logger.debug("Unable to close Javascript engine", e);
+        }
+    }
+}
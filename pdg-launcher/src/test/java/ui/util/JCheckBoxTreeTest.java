@@ -0,0 +1,188 @@
+/*
+ * This file is part of the Project-Diagram-Generator distribution
+ * (https://github.com/syoon2/Project-Diagram-Generator).
+ * Copyright (c) 2024 Sung Ho Yoon.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ui.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeNode;
+import javax.swing.tree.TreePath;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks how {@link JCheckBoxTree} derives the checking state of nodes from
+ * the states set explicitly, on the tree
+ *
+ * <pre>
+ * root
+ * +- a
+ * |  +- a1
+ * |  +- a2
+ * +- b
+ *    +- b1
+ * </pre>
+ */
+class JCheckBoxTreeTest {
+
+    private DefaultMutableTreeNode root;
+    private DefaultMutableTreeNode a;
+    private DefaultMutableTreeNode a1;
+    private DefaultMutableTreeNode a2;
+    private DefaultMutableTreeNode b;
+    private DefaultMutableTreeNode b1;
+    private DefaultTreeModel model;
+    private JCheckBoxTree tree;
+
+    @BeforeEach
+    void setUp() {
+        root = new DefaultMutableTreeNode("root");
+        a = new DefaultMutableTreeNode("a");
+        a1 = new DefaultMutableTreeNode("a1");
+        a2 = new DefaultMutableTreeNode("a2");
+        b = new DefaultMutableTreeNode("b");
+        b1 = new DefaultMutableTreeNode("b1");
+        root.add(a);
+        root.add(b);
+        a.add(a1);
+        a.add(a2);
+        b.add(b1);
+        model = new DefaultTreeModel(root);
+        tree = new JCheckBoxTree(model);
+    }
+
+    @Test
+    void checkedByDefault() {
+        for (TreeNode node : new TreeNode[] { root, a, a1, a2, b, b1 }) {
+            assertTrue(selected(node));
+            assertFalse(partial(node));
+        }
+        assertEquals(0, tree.getCheckedPaths().length);
+    }
+
+    @Test
+    void toggleParentThenChild() {
+        check(a, false);
+        assertFalse(selected(a));
+        assertFalse(selected(a1));
+        assertFalse(selected(a2));
+        assertTrue(selected(root));
+        assertTrue(partial(root));
+        assertTrue(selected(b1));
+
+        check(a1, true);
+        assertTrue(selected(a1));
+        assertFalse(selected(a2));
+        // Selected through its child, but only partially
+        assertTrue(selected(a));
+        assertTrue(partial(a));
+        assertTrue(partial(root));
+        assertArrayEquals(new TreePath[] { path(a1) }, tree.getCheckedPaths());
+    }
+
+    @Test
+    void recheckChildToInheritedState() {
+        check(a1, false);
+        assertTrue(partial(a));
+        assertTrue(partial(root));
+
+        check(a1, true);
+        assertTrue(selected(a1));
+        assertFalse(partial(a));
+        assertFalse(partial(root));
+        assertEquals(0, tree.getCheckedPaths().length);
+    }
+
+    @Test
+    void recheckParentDiscardsChildStates() {
+        check(a, false);
+        check(a1, true);
+        check(a, true);
+        assertTrue(selected(a1));
+        assertTrue(selected(a2));
+        assertFalse(partial(a));
+        assertFalse(partial(root));
+        assertEquals(0, tree.getCheckedPaths().length);
+    }
+
+    @Test
+    void removeSubtreeWithStates() {
+        check(a, false);
+        check(a1, true);
+        check(b1, false);
+        model.removeNodeFromParent(a);
+        assertEquals(0, tree.getCheckedPaths().length);
+        // Only the state of b1 is left
+        assertTrue(partial(root));
+        assertTrue(partial(b));
+
+        model.removeNodeFromParent(b);
+        assertTrue(selected(root));
+        assertFalse(partial(root));
+    }
+
+    @Test
+    void replacePlaceholder() {
+        // As PackageTreeNode does once the subpackages of a node are loaded
+        DefaultMutableTreeNode placeholder = new DefaultMutableTreeNode("Loading...");
+        b1.add(placeholder);
+        model.nodeStructureChanged(b1);
+        check(b1, false);
+        check(placeholder, true);
+        assertTrue(partial(b1));
+
+        DefaultMutableTreeNode c1 = new DefaultMutableTreeNode("c1");
+        DefaultMutableTreeNode c2 = new DefaultMutableTreeNode("c2");
+        b1.removeAllChildren();
+        b1.add(c1);
+        b1.add(c2);
+        model.nodeStructureChanged(b1);
+
+        // The loaded children inherit the state of their parent
+        assertFalse(selected(b1));
+        assertFalse(partial(b1));
+        assertFalse(selected(c1));
+        assertFalse(selected(c2));
+        assertTrue(partial(root));
+        assertEquals(0, tree.getCheckedPaths().length);
+    }
+
+    // Helpers
+
+    private void check(TreeNode node, boolean check) {
+        tree.checkSubTree(path(node), check);
+    }
+
+    private boolean selected(TreeNode node) {
+        return tree.isSelected(path(node));
+    }
+
+    private boolean partial(TreeNode node) {
+        return tree.isSelectedPartially(path(node));
+    }
+
+    private static TreePath path(TreeNode node) {
+        return JCheckBoxTree.buildTreePath(node);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * This file is part of the Project-Diagram-Generator distribution
+ * (https://github.com/syoon2/Project-Diagram-Generator).
+ * Copyright (c) 2024 Sung Ho Yoon.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ui.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.image.PNGTranscoder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the PNG files written by {@link TiledSvgRasterizer} against those of
+ * Batik's own {@link PNGTranscoder}.
+ */
+class TiledSvgRasterizerTest {
+
+    /** Largest difference in any channel for pixels to count as equal. */
+    private static final int TOLERANCE = 8;
+    /** Share of pixels that may differ, for rendering hints that differ. */
+    private static final double MAX_MISMATCH = 0.005;
+    /** Size of an IDAT chunk in {@link TiledSvgRasterizer}. */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    @TempDir
+    File dir;
+
+    @Test
+    void partialLastStrip() throws IOException, TranscoderException {
+        File svg = write("small.svg", diagram());
+        // 37 rows in strips of 10
+        BufferedImage tiled = rasterize(svg, new TiledSvgRasterizer(50 * 10));
+        assertEquals(50, tiled.getWidth());
+        assertEquals(37, tiled.getHeight());
+        assertSimilar(transcode(svg), tiled);
+    }
+
+    @Test
+    void singleRowStrips() throws IOException, TranscoderException {
+        File svg = write("small.svg", diagram());
+        assertSimilar(transcode(svg), rasterize(svg, new TiledSvgRasterizer(1)));
+    }
+
+    @Test
+    void largerThanChunk() throws IOException, TranscoderException {
+        File svg = write("large.svg", noise(320, 320));
+        File png = new File(dir, "large.png");
+        // 320 rows in strips of 7
+        new TiledSvgRasterizer(320 * 7).rasterize(svg, png);
+        assertTrue(countChunks(png, "IDAT") > 1, "image data fits into a single chunk");
+        BufferedImage tiled = ImageIO.read(png);
+        assertNotNull(tiled);
+        assertSimilar(transcode(svg), tiled);
+    }
+
+    @Test
+    void defaultStrips() throws IOException, TranscoderException {
+        // 320 rows in strips of 256
+        File svg = write("large.svg", noise(320, 320));
+        assertSimilar(transcode(svg), rasterize(svg, new TiledSvgRasterizer()));
+    }
+
+    // Helpers
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private BufferedImage rasterize(File svg, TiledSvgRasterizer rasterizer) throws IOException {
+        File png = new File(dir, "tiled.png");
+        rasterizer.rasterize(svg, png);
+        BufferedImage image = ImageIO.read(png);
+        assertNotNull(image);
+        return image;
+    }
+
+    private BufferedImage transcode(File svg) throws IOException, TranscoderException {
+        File png = new File(dir, "transcoded.png");
+        try (OutputStream out = Files.newOutputStream(png.toPath())) {
+            new PNGTranscoder().transcode(new TranscoderInput(svg.toURI().toString()), new TranscoderOutput(out));
+        }
+        BufferedImage image = ImageIO.read(png);
+        assertNotNull(image);
+        return image;
+    }
+
+    private static void assertSimilar(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int mismatches = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (difference(expected.getRGB(x, y), actual.getRGB(x, y)) > TOLERANCE) {
+                    mismatches++;
+                }
+            }
+        }
+        int pixels = expected.getWidth() * expected.getHeight();
+        assertTrue(mismatches <= pixels * MAX_MISMATCH, mismatches + " of " + pixels + " pixels differ");
+    }
+
+    /** Returns the largest difference between the channels of two pixels. */
+    private static int difference(int argb1, int argb2) {
+        if ((argb1 >>> 24) == 0 && (argb2 >>> 24) == 0) {
+            // The color of a transparent pixel is irrelevant
+            return 0;
+        }
+        int max = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            max = Math.max(max, Math.abs(((argb1 >>> shift) & 0xFF) - ((argb2 >>> shift) & 0xFF)));
+        }
+        return max;
+    }
+
+    /** Counts the chunks of a type in a PNG file. */
+    private static int countChunks(File png, String type) throws IOException {
+        int count = 0;
+        try (InputStream in = Files.newInputStream(png.toPath());
+                DataInputStream data = new DataInputStream(in)) {
+            data.skipBytes(8);
+            while (true) {
+                int length = data.readInt();
+                byte[] typeBytes = new byte[4];
+                data.readFully(typeBytes);
+                String chunkType = new String(typeBytes, StandardCharsets.US_ASCII);
+                if (chunkType.equals(type)) {
+                    assertTrue(length <= CHUNK_SIZE, "chunk of " + length + " bytes");
+                    count++;
+                }
+                data.skipBytes(length + 4);
+                if (chunkType.equals("IEND")) {
+                    return count;
+                }
+            }
+        }
+    }
+
+    /** A small diagram as Graphviz writes it, with text and curves. */
+    private static String diagram() {
+        return "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"50\" height=\"37\" viewBox=\"0 0 50 37\">\n"
+                + "<polygon fill=\"white\" stroke=\"none\" points=\"0,37 0,0 50,0 50,37 0,37\"/>\n"
+                + "<polygon fill=\"#f2f2f2\" stroke=\"black\" points=\"4,33 4,4 30,4 30,33 4,33\"/>\n"
+                + "<text x=\"17\" y=\"16\" text-anchor=\"middle\" font-family=\"serif\" font-size=\"8\">A</text>\n"
+                + "<polyline fill=\"none\" stroke=\"black\" points=\"4,20 30,20\"/>\n"
+                + "<path fill=\"none\" stroke=\"black\" d=\"M30,18C36,10 42,28 46,18\"/>\n"
+                + "<polygon fill=\"none\" stroke=\"black\" points=\"44,16 47,20 47,14 44,16\"/>\n"
+                + "</svg>\n";
+    }
+
+    /**
+     * An opaque image of small squares in random colors, whose pixel data
+     * compresses poorly.
+     */
+    private static String noise(int width, int height) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        sb.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width).append("\" height=\"")
+                .append(height).append("\">\n");
+        for (int y = 0; y < height; y += 2) {
+            for (int x = 0; x < width; x += 2) {
+                sb.append("<rect x=\"").append(x).append("\" y=\"").append(y)
+                        .append("\" width=\"2\" height=\"2\" fill=\"#")
+                        .append(String.format("%06x", random.nextInt(1 << 24))).append("\"/>\n");
+            }
+        }
+        return sb.append("</svg>\n").toString();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * This file is part of the Project-Diagram-Generator distribution
+ * (https://github.com/syoon2/Project-Diagram-Generator).
+ * Copyright (c) 2024 Sung Ho Yoon.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ui.util.graphviz;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import guru.nidi.graphviz.engine.*;
+
+/**
+ * Measures the time to the first render with the Nashorn engine, each in a
+ * fresh JVM: without the persistent code cache, with an empty cache, and with
+ * the cache filled by the run before. Run with {@code gradle benchmark}; the
+ * timings are printed.
+ */
+@Tag("benchmark")
+class NashornCodeCacheBenchmark {
+
+    /** Prefix of the line on which a render reports its time. */
+    private static final String FIRST_RENDER = "first render: ";
+    private static final int ROUNDS = 3;
+
+    @TempDir
+    File cache;
+
+    @Test
+    void firstRender() throws IOException, InterruptedException {
+        long uncached = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            uncached = Math.min(uncached, timeFirstRender(""));
+        }
+        long cold = timeFirstRender(cache.getPath());
+        assertTrue(cache.list().length > 0, "Nothing was written to the code cache");
+        long warm = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            warm = Math.min(warm, timeFirstRender(cache.getPath()));
+        }
+
+        System.out.printf("%-12s %8.1f ms%n", "no cache", uncached / 1e6);
+        System.out.printf("%-12s %8.1f ms%n", "cold cache", cold / 1e6);
+        System.out.printf("%-12s %8.1f ms%n", "warm cache", warm / 1e6);
+    }
+
+    /**
+     * Renders a graph in a new JVM, using the specified code cache directory,
+     * and returns the time the render took in nanoseconds.
+     */
+    private static long timeFirstRender(String cacheDir) throws IOException, InterruptedException {
+        File java = new File(new File(System.getProperty("java.home"), "bin"), "java");
+        Process process = new ProcessBuilder(java.getPath(), "-cp", System.getProperty("java.class.path"),
+                "-Dpdg.nashorn.cache.dir=" + cacheDir, NashornCodeCacheBenchmark.class.getName())
+                .redirectErrorStream(true)
+                .start();
+        List<String> lines = IOUtils.readLines(process.getInputStream(), StandardCharsets.UTF_8);
+        assertEquals(0, process.waitFor(), String.join("\n", lines));
+        for (String line : lines) {
+            if (line.startsWith(FIRST_RENDER)) {
+                return Long.parseLong(line.substring(FIRST_RENDER.length()));
+            }
+        }
+        throw new AssertionError("No time reported:\n" + String.join("\n", lines));
+    }
+
+    /**
+     * Renders a trivial graph with the Nashorn engine and prints the time
+     * taken, including setting up the engine.
+     *
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        Graphviz.useEngine(new NashornGraphvizEngine());
+        Graphviz.fromString("digraph { a -> b }").render(Format.SVG).toString();
+        System.out.println(FIRST_RENDER + (System.nanoTime() - start));
+        Graphviz.releaseEngine();
+    }
+}